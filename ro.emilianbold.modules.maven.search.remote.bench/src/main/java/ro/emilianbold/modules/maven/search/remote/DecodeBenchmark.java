@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ro.emilianbold.modules.maven.search.remote.SolrResponseParser.SolrDoc;
+
+/**
+ * Reading a search response: the streaming parse alone, the parse with the
+ * documents decoded to {@code NBVersionInfo}, and the whole search of a page
+ * with the response served from memory, ie. without the network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+
+    @Param({"10", "500", "5000"})
+    public int docs;
+
+    private String json;
+    private String solrQuery;
+    private MavenCentralGenericFindQuery query;
+
+    @Setup
+    public void setUp() {
+	json = SolrFixtures.gav(docs);
+	byte[] body = json.getBytes(StandardCharsets.UTF_8);
+	OkHttpClient client = new OkHttpClient.Builder()
+		.addInterceptor((okhttp3.Interceptor.Chain chain) -> new Response.Builder()
+			.request(chain.request())
+			.protocol(Protocol.HTTP_1_1)
+			.code(200)
+			.message("OK") //NOI18N
+			.body(ResponseBody.create(MediaType.parse("application/json"), body)) //NOI18N
+			.build())
+		.build();
+	SearchMetrics metrics = new SearchMetrics();
+	SearchEndpoints endpoints = new SearchEndpoints(Collections.singletonList("http://localhost/solrsearch/select"), client, metrics); //NOI18N
+	query = new MavenCentralGenericFindQuery("central", endpoints, null, null, metrics); //NOI18N
+	solrQuery = MavenCentralGenericFindQuery.coordinatesQuery("org.example", null, null).toQuery(0, docs); //NOI18N
+    }
+
+    @Benchmark
+    public long parse(Blackhole bh) throws IOException, ParseException {
+	SolrResponseParser parser = new SolrResponseParser((SolrDoc doc) -> bh.consume(doc.get("v"))); //NOI18N
+	new JSONParser().parse(new StringReader(json), parser);
+	return parser.getNumFound();
+    }
+
+    @Benchmark
+    public List<NBVersionInfo> decode() throws IOException, ParseException {
+	VersionInfoDecoder decoder = new VersionInfoDecoder("central"); //NOI18N
+	List<NBVersionInfo> infos = new ArrayList<>();
+	new JSONParser().parse(new StringReader(json), new SolrResponseParser((SolrDoc doc) -> decoder.decode(doc, infos)));
+	return infos;
+    }
+
+    @Benchmark
+    public List<NBVersionInfo> search() {
+	VersionInfoDecoder decoder = new VersionInfoDecoder("central"); //NOI18N
+	List<NBVersionInfo> infos = new ArrayList<>();
+	if (query.queryCentralRepository(solrQuery, (SolrDoc doc) -> decoder.decode(doc, infos)) < 0) {
+	    throw new IllegalStateException(solrQuery);
+	}
+	return infos;
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ro.emilianbold.modules.maven.search.remote.SolrResponseParser.SolrDoc;
+
+/**
+ * What {@code BaseQueries} does with the records of a search before the IDE
+ * sees them: sorting versions, listing artifactIds, GAVs and the newest
+ * versions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+
+    @Param({"10", "500", "5000"})
+    public int docs;
+
+    private List<NBVersionInfo> infos;
+
+    @Setup
+    public void setUp() throws IOException, ParseException {
+	VersionInfoDecoder decoder = new VersionInfoDecoder("central"); //NOI18N
+	infos = new ArrayList<>();
+	new JSONParser().parse(new StringReader(SolrFixtures.gav(docs)), new SolrResponseParser((SolrDoc doc) -> decoder.decode(doc, infos)));
+    }
+
+    //getVersions
+    @Benchmark
+    public List<NBVersionInfo> versions() {
+	return Utils.newestFirst(infos);
+    }
+
+    //getArtifacts
+    @Benchmark
+    public List<String> artifacts() {
+	return Utils.distinct(infos, NBVersionInfo::getArtifactId, s -> true);
+    }
+
+    //getGAVsForPackaging
+    @Benchmark
+    public List<String> gavs() {
+	return Utils.distinct(infos, (NBVersionInfo info) -> info.getGroupId() + ":" + info.getArtifactId() + ":" + info.getVersion(), s -> true); //NOI18N
+    }
+
+    //getNewestVersions
+    @Benchmark
+    public List<NBVersionInfo> newest() {
+	TopVersions top = new TopVersions(10);
+	top.addAll(infos);
+	return top.toList();
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building search URLs, done before every request: the coordinates and text
+ * searches of the IDE, and the combined queries of the checksum and version
+ * batches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+
+    //as many as one batch holds
+    private static final int BATCH = 20;
+
+    private SearchEndpoints.Endpoint endpoint;
+    private List<String> checksums;
+    private List<SolrQuery> coordinates;
+
+    @Setup
+    public void setUp() {
+	SearchEndpoints endpoints = new SearchEndpoints(Collections.singletonList("http://search.maven.org/solrsearch/select"), new OkHttpClient(), new SearchMetrics()); //NOI18N
+	endpoint = endpoints.candidates().get(0);
+
+	Random random = new Random(1);
+	checksums = new ArrayList<>(BATCH);
+	coordinates = new ArrayList<>(BATCH);
+	for (int i = 0; i < BATCH; i++) {
+	    StringBuilder sha = new StringBuilder(40);
+	    for (int j = 0; j < 40; j++) {
+		sha.append(Character.forDigit(random.nextInt(16), 16));
+	    }
+	    checksums.add(sha.toString());
+	    coordinates.add(new SolrQuery()
+		    .phrase("g", "org.example.group" + i) //NOI18N
+		    .phrase("a", "artifact-" + i)); //NOI18N
+	}
+    }
+
+    @Benchmark
+    public String versions() {
+	return endpoint.url(MavenCentralGenericFindQuery.coordinatesQuery("com.fasterxml.jackson.core", "jackson-databind", null).toQuery(0, 50)); //NOI18N
+    }
+
+    @Benchmark
+    public String text() {
+	return endpoint.url(new SolrQuery().fields("id,g,a,v,latestVersion,p,ec").text("jackson databind").toQuery(0, 50)); //NOI18N
+    }
+
+    @Benchmark
+    public String checksumBatch() {
+	return endpoint.url(new SolrQuery().fields("id,g,a,v,p,ec,1").rows(5 * BATCH).anyPhrase("1", checksums).toQuery()); //NOI18N
+    }
+
+    @Benchmark
+    public String versionsBatch() {
+	return endpoint.url(new SolrQuery().core("gav").fields("id,g,a,v,p,ec").anyOf(coordinates).toQuery(0, 200)); //NOI18N
+    }
+}
@@ -0,0 +1,565 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Local index of the groupIds and {@code groupId:artifactId} pairs seen so far,
+ * for offline prefix lookups.
+ *
+ * The index is a memory-mapped file with two sorted, front-coded sections.
+ * Entries learned from downloaded results are kept on the heap until the next
+ * rebuild, which merges them into a new generation of the file. Rebuilds only
+ * run on the index's own single thread, so generations never overlap.
+ */
+/* package protected */ final class CoordinateIndex {
+
+    private static final int MAGIC = 0x4d534349; //MSCI
+    private static final int VERSION = 1;
+    private static final int BLOCK_SIZE = 16;
+    private static final String FILE_PREFIX = "coordinates-"; //NOI18N
+    private static final String FILE_SUFFIX = ".idx"; //NOI18N
+
+    private static final int FLUSH_THRESHOLD = 1000;
+    private static final int FLUSH_DELAY = 30 * 1000;
+    private static final int IMPORT_CHUNK = 50000;
+
+    private static final RequestProcessor RP = new RequestProcessor(CoordinateIndex.class.getName());
+
+    private final File folder;
+    private final RequestProcessor.Task flushTask;
+
+    private final SortedSet<String> pendingGroups = new TreeSet<>();
+    private final SortedSet<String> pendingCoordinates = new TreeSet<>();
+
+    private volatile Snapshot snapshot;
+    private int generation;
+    private boolean flushScheduled;
+
+    CoordinateIndex(File folder) {
+	this.folder = folder;
+	this.flushTask = RP.create(() -> flush());
+    }
+
+    /**
+     * Records the groupIds and artifactIds of the given results.
+     */
+    public void learn(Collection<NBVersionInfo> infos) {
+	Snapshot s = open();
+	synchronized (this) {
+	    String previous = null;
+	    for (NBVersionInfo info : infos) {
+		String groupId = info.getGroupId();
+		if (groupId == null || groupId.isEmpty()) {
+		    continue;
+		}
+		String artifactId = info.getArtifactId();
+		String coordinate = artifactId == null || artifactId.isEmpty() ? null : groupId + ':' + artifactId;
+		if (coordinate != null ? coordinate.equals(previous) : groupId.equals(previous)) {
+		    //results usually come grouped, eg. one entry per version
+		    continue;
+		}
+		previous = coordinate != null ? coordinate : groupId;
+
+		if (!pendingGroups.contains(groupId) && !s.groups.contains(groupId)) {
+		    pendingGroups.add(groupId);
+		}
+		if (coordinate != null && !pendingCoordinates.contains(coordinate) && !s.coordinates.contains(coordinate)) {
+		    pendingCoordinates.add(coordinate);
+		}
+	    }
+	    int pending = pendingGroups.size() + pendingCoordinates.size();
+	    if (pending >= FLUSH_THRESHOLD) {
+		flushScheduled = true;
+		flushTask.schedule(0);
+	    } else if (pending > 0 && !flushScheduled) {
+		flushScheduled = true;
+		flushTask.schedule(FLUSH_DELAY);
+	    }
+	}
+    }
+
+    /**
+     * @return true if no groupId is known
+     */
+    public boolean isEmpty() {
+	Snapshot s = open();
+	synchronized (this) {
+	    return s.groups.count == 0 && pendingGroups.isEmpty();
+	}
+    }
+
+    /**
+     * @return sorted groupIds starting with {@code prefix}, at most
+     * {@code limit}
+     */
+    public List<String> getGroups(String prefix, int limit) {
+	Snapshot s = open();
+	SortedSet<String> found = new TreeSet<>();
+	s.groups.scan(prefix, (String key) -> found.add(key) && found.size() < limit);
+	synchronized (this) {
+	    found.addAll(pendingGroups.subSet(prefix, prefix + Character.MAX_VALUE));
+	}
+	return truncate(found, limit, 0);
+    }
+
+    /**
+     * @return sorted artifactIds of {@code groupId} starting with
+     * {@code prefix}, at most {@code limit}
+     */
+    public List<String> getArtifacts(String groupId, String prefix, int limit) {
+	Snapshot s = open();
+	String keyPrefix = groupId + ':' + prefix;
+	SortedSet<String> found = new TreeSet<>();
+	s.coordinates.scan(keyPrefix, (String key) -> found.add(key) && found.size() < limit);
+	synchronized (this) {
+	    found.addAll(pendingCoordinates.subSet(keyPrefix, keyPrefix + Character.MAX_VALUE));
+	}
+	return truncate(found, limit, groupId.length() + 1);
+    }
+
+    /**
+     * Merges a dump with one {@code groupId}, {@code groupId:artifactId} or
+     * {@code groupId:artifactId:version} per line into the index.
+     */
+    public void importDump(File dump) throws IOException {
+	try (BufferedReader r = Files.newBufferedReader(dump.toPath(), StandardCharsets.UTF_8)) {
+	    int lines = 0;
+	    String line;
+	    while ((line = r.readLine()) != null) {
+		String[] parts = line.trim().split(":"); //NOI18N
+		if (parts[0].isEmpty()) {
+		    continue;
+		}
+		synchronized (this) {
+		    pendingGroups.add(parts[0]);
+		    if (parts.length > 1 && !parts[1].isEmpty()) {
+			pendingCoordinates.add(parts[0] + ':' + parts[1]);
+		    }
+		}
+		if (++lines % IMPORT_CHUNK == 0) {
+		    flushAndWait();
+		}
+	    }
+	}
+	flushAndWait();
+    }
+
+    /**
+     * Writes the pending entries now, on the index thread, and waits until
+     * they are mapped.
+     */
+    void flushAndWait() {
+	synchronized (this) {
+	    flushScheduled = true;
+	}
+	flushTask.schedule(0);
+	flushTask.waitFinished();
+    }
+
+    /**
+     * @return the modification time of the current index file or 0 if there
+     * is none
+     */
+    public synchronized long lastModified() {
+	open();
+	return new File(folder, FILE_PREFIX + generation + FILE_SUFFIX).lastModified();
+    }
+
+    private static List<String> truncate(SortedSet<String> found, int limit, int strip) {
+	List<String> result = new ArrayList<>(Math.min(found.size(), limit));
+	for (String key : found) {
+	    if (result.size() >= limit) {
+		break;
+	    }
+	    result.add(key.substring(strip));
+	}
+	return result;
+    }
+
+    private synchronized Snapshot open() {
+	if (snapshot != null) {
+	    return snapshot;
+	}
+	snapshot = Snapshot.EMPTY;
+	File[] files = folder.listFiles((File dir, String name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+	if (files == null) {
+	    return snapshot;
+	}
+	int newest = -1;
+	for (File f : files) {
+	    try {
+		newest = Math.max(newest, Integer.parseInt(f.getName().substring(FILE_PREFIX.length(), f.getName().length() - FILE_SUFFIX.length())));
+	    } catch (NumberFormatException ex) {
+		//not ours
+	    }
+	}
+	for (File f : files) {
+	    if (!f.getName().equals(FILE_PREFIX + newest + FILE_SUFFIX)) {
+		//older generations, may still be mapped on some platforms
+		f.delete();
+	    }
+	}
+	if (newest >= 0) {
+	    generation = newest;
+	    try {
+		snapshot = Snapshot.map(new File(folder, FILE_PREFIX + newest + FILE_SUFFIX));
+	    } catch (IOException ex) {
+		Logger.getLogger(CoordinateIndex.class.getName()).log(Level.INFO, null, ex);
+	    }
+	}
+	return snapshot;
+    }
+
+    /**
+     * Writes a new generation of the index with the pending entries merged in.
+     * Only called by {@link #flushTask}.
+     */
+    private void flush() {
+	Snapshot current = open();
+	List<String> newGroups;
+	List<String> newCoordinates;
+	int next;
+	synchronized (this) {
+	    flushScheduled = false;
+	    if (pendingGroups.isEmpty() && pendingCoordinates.isEmpty()) {
+		return;
+	    }
+	    newGroups = new ArrayList<>(pendingGroups);
+	    newCoordinates = new ArrayList<>(pendingCoordinates);
+	    next = generation + 1;
+	}
+
+	File f = new File(folder, FILE_PREFIX + next + FILE_SUFFIX);
+	try {
+	    folder.mkdirs();
+	    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f)))) {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		Section.write(out, merge(current.groups.iterator(), newGroups.iterator()));
+		Section.write(out, merge(current.coordinates.iterator(), newCoordinates.iterator()));
+	    }
+	    Snapshot mapped = Snapshot.map(f);
+	    synchronized (this) {
+		//not removeAll, it is quadratic for a list argument of the same size
+		newGroups.forEach(pendingGroups::remove);
+		newCoordinates.forEach(pendingCoordinates::remove);
+		snapshot = mapped;
+		File old = new File(folder, FILE_PREFIX + generation + FILE_SUFFIX);
+		generation = next;
+		//fails while still mapped on Windows; cleaned up on next start then
+		old.delete();
+	    }
+	} catch (IOException ex) {
+	    Logger.getLogger(CoordinateIndex.class.getName()).log(Level.INFO, null, ex);
+	    f.delete();
+	}
+    }
+
+    /**
+     * Distinct union of two sorted iterators.
+     */
+    private static Iterator<String> merge(final Iterator<String> a, final Iterator<String> b) {
+	return new Iterator<String>() {
+	    private String nextA = a.hasNext() ? a.next() : null;
+	    private String nextB = b.hasNext() ? b.next() : null;
+
+	    @Override
+	    public boolean hasNext() {
+		return nextA != null || nextB != null;
+	    }
+
+	    @Override
+	    public String next() {
+		String result;
+		if (nextB == null || (nextA != null && nextA.compareTo(nextB) <= 0)) {
+		    result = nextA;
+		    if (nextB != null && nextB.equals(nextA)) {
+			nextB = b.hasNext() ? b.next() : null;
+		    }
+		    nextA = a.hasNext() ? a.next() : null;
+		} else if (nextB != null) {
+		    result = nextB;
+		    nextB = b.hasNext() ? b.next() : null;
+		} else {
+		    throw new NoSuchElementException();
+		}
+		return result;
+	    }
+	};
+    }
+
+    private static final class Snapshot {
+
+	static final Snapshot EMPTY = new Snapshot(Section.EMPTY, Section.EMPTY);
+
+	final Section groups;
+	final Section coordinates;
+
+	Snapshot(Section groups, Section coordinates) {
+	    this.groups = groups;
+	    this.coordinates = coordinates;
+	}
+
+	static Snapshot map(File f) throws IOException {
+	    try (RandomAccessFile raf = new RandomAccessFile(f, "r")) { //NOI18N
+		MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+		if (buffer.limit() < 8 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+		    throw new IOException("Unsupported index " + f); //NOI18N
+		}
+		Section groups = new Section(slice(buffer, 8));
+		Section coordinates = new Section(slice(buffer, 8 + groups.length()));
+		return new Snapshot(groups, coordinates);
+	    }
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int offset) {
+	    ByteBuffer b = buffer.duplicate();
+	    b.position(offset);
+	    return b.slice();
+	}
+    }
+
+    /**
+     * Sorted keys in blocks of {@link #BLOCK_SIZE}: the first key of a block
+     * is stored in full, the others as the length shared with the previous key
+     * plus the remaining bytes.
+     *
+     * <pre>
+     * int count, int blockCount, int dataLength, int[blockCount] blockOffsets, byte[dataLength] data
+     * </pre>
+     *
+     * Only absolute reads are used on the buffer so it can be shared between
+     * threads.
+     */
+    private static final class Section {
+
+	static final Section EMPTY = new Section(ByteBuffer.wrap(new byte[12]));
+
+	private final ByteBuffer buffer;
+	private final int count;
+	private final int blockCount;
+	private final int dataStart;
+
+	Section(ByteBuffer buffer) {
+	    this.buffer = buffer;
+	    this.count = buffer.getInt(0);
+	    this.blockCount = buffer.getInt(4);
+	    this.dataStart = 12 + 4 * blockCount;
+	}
+
+	int length() {
+	    return dataStart + buffer.getInt(8);
+	}
+
+	boolean contains(String key) {
+	    boolean[] found = new boolean[1];
+	    scan(key, (String k) -> {
+		found[0] = k.equals(key);
+		return false;
+	    });
+	    return found[0];
+	}
+
+	/**
+         * Passes the keys starting with {@code prefix}, in order, to
+         * {@code visitor} until it returns false.
+         */
+	void scan(String prefix, Predicate<String> visitor) {
+	    if (count == 0) {
+		return;
+	    }
+	    Cursor c = new Cursor(findBlock(prefix) * BLOCK_SIZE);
+	    while (c.next()) {
+		String key = c.key();
+		if (key.startsWith(prefix)) {
+		    if (!visitor.test(key)) {
+			return;
+		    }
+		} else if (key.compareTo(prefix) > 0) {
+		    return;
+		}
+	    }
+	}
+
+	Iterator<String> iterator() {
+	    final Cursor c = new Cursor(0);
+	    return new Iterator<String>() {
+		private boolean hasNext = c.next();
+
+		@Override
+		public boolean hasNext() {
+		    return hasNext;
+		}
+
+		@Override
+		public String next() {
+		    if (!hasNext) {
+			throw new NoSuchElementException();
+		    }
+		    String key = c.key();
+		    hasNext = c.next();
+		    return key;
+		}
+	    };
+	}
+
+	/**
+         * @return the last block whose first key is not greater than
+         * {@code prefix}
+         */
+	private int findBlock(String prefix) {
+	    int low = 0;
+	    int high = blockCount - 1;
+	    while (low < high) {
+		int mid = (low + high + 1) >>> 1;
+		Cursor c = new Cursor(mid * BLOCK_SIZE);
+		c.next();
+		if (c.key().compareTo(prefix) <= 0) {
+		    low = mid;
+		} else {
+		    high = mid - 1;
+		}
+	    }
+	    return low;
+	}
+
+	private final class Cursor {
+
+	    private int index;
+	    private int position;
+	    private byte[] key = new byte[64];
+	    private int keyLength;
+
+	    Cursor(int index) {
+		this.index = index;
+	    }
+
+	    boolean next() {
+		if (index >= count) {
+		    return false;
+		}
+		int shared = 0;
+		if (index % BLOCK_SIZE == 0) {
+		    position = dataStart + buffer.getInt(12 + 4 * (index / BLOCK_SIZE));
+		} else {
+		    shared = readVarInt();
+		}
+		int suffix = readVarInt();
+		if (shared + suffix > key.length) {
+		    key = Arrays.copyOf(key, Math.max(shared + suffix, 2 * key.length));
+		}
+		for (int i = 0; i < suffix; i++) {
+		    key[shared + i] = buffer.get(position++);
+		}
+		keyLength = shared + suffix;
+		index++;
+		return true;
+	    }
+
+	    String key() {
+		return new String(key, 0, keyLength, StandardCharsets.UTF_8);
+	    }
+
+	    private int readVarInt() {
+		int value = 0;
+		for (int shift = 0;; shift += 7) {
+		    byte b = buffer.get(position++);
+		    value |= (b & 0x7f) << shift;
+		    if ((b & 0x80) == 0) {
+			return value;
+		    }
+		}
+	    }
+	}
+
+	static void write(DataOutputStream out, Iterator<String> sortedKeys) throws IOException {
+	    ByteArrayOutputStream data = new ByteArrayOutputStream();
+	    List<Integer> blockOffsets = new ArrayList<>();
+	    byte[] previous = new byte[0];
+	    int count = 0;
+	    while (sortedKeys.hasNext()) {
+		byte[] key = sortedKeys.next().getBytes(StandardCharsets.UTF_8);
+		int shared = 0;
+		if (count % BLOCK_SIZE == 0) {
+		    blockOffsets.add(data.size());
+		} else {
+		    int max = Math.min(previous.length, key.length);
+		    while (shared < max && previous[shared] == key[shared]) {
+			shared++;
+		    }
+		    writeVarInt(data, shared);
+		}
+		writeVarInt(data, key.length - shared);
+		data.write(key, shared, key.length - shared);
+		previous = key;
+		count++;
+	    }
+	    out.writeInt(count);
+	    out.writeInt(blockOffsets.size());
+	    out.writeInt(data.size());
+	    for (int offset : blockOffsets) {
+		out.writeInt(offset);
+	    }
+	    data.writeTo(out);
+	}
+
+	private static void writeVarInt(ByteArrayOutputStream out, int value) {
+	    while ((value & ~0x7f) != 0) {
+		out.write((value & 0x7f) | 0x80);
+		value >>>= 7;
+	    }
+	    out.write(value);
+	}
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.util.Arrays;
+
+/**
+ * Recent latencies and circuit breaker of a search endpoint.
+ *
+ * The breaker opens after a run of consecutive failures. While open, requests
+ * are refused so callers fall back to cached data right away instead of
+ * waiting out a timeout. After the cool down a single probe is let through:
+ * its success closes the breaker, its failure opens it again.
+ */
+/* package protected */ final class EndpointHealth {
+
+    private final static int FAILURES_TO_OPEN = Integer.getInteger("maven.search.remote.breaker.failures", 5); //NOI18N
+    private final static long COOL_DOWN = Integer.getInteger("maven.search.remote.breaker.cooldown", 30) * 1000L; //NOI18N
+
+    private final static int WINDOW = 128;
+    //percentiles of fewer samples are mostly noise
+    private final static int MIN_SAMPLES = 20;
+    private final static double EWMA_WEIGHT = 0.2;
+
+    private enum State {
+	CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final long[] latencies = new long[WINDOW];
+    private int next;
+    private int count;
+    private long[] sorted;
+    private double average = -1;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    /**
+     * @return false if the breaker is open and the request should not be
+     * sent
+     */
+    synchronized boolean allowRequest() {
+	switch (state) {
+	    case CLOSED:
+		return true;
+	    case OPEN:
+		if (System.currentTimeMillis() - openedAt < COOL_DOWN) {
+		    return false;
+		}
+		state = State.HALF_OPEN;
+		openedAt = System.currentTimeMillis();
+		return true;
+	    default:
+		//one probe at a time, unless it got lost
+		if (System.currentTimeMillis() - openedAt < COOL_DOWN) {
+		    return false;
+		}
+		openedAt = System.currentTimeMillis();
+		return true;
+	}
+    }
+
+    synchronized boolean isOpen() {
+	return state != State.CLOSED;
+    }
+
+    /**
+     * @return true unless the breaker would refuse a request now
+     */
+    synchronized boolean isAvailable() {
+	return state == State.CLOSED || System.currentTimeMillis() - openedAt >= COOL_DOWN;
+    }
+
+    /**
+     * @return the exponentially weighted average latency in milliseconds,
+     * or -1 before the first success
+     */
+    synchronized double getAverageLatency() {
+	return average;
+    }
+
+    /**
+     * Records an answer from the network. Cached responses must not be
+     * recorded, they would make the endpoint look faster than it is.
+     *
+     * @param latency milliseconds until the response headers arrived
+     */
+    synchronized void success(long latency) {
+	latencies[next] = latency;
+	next = (next + 1) % WINDOW;
+	count = Math.min(count + 1, WINDOW);
+	sorted = null;
+	average = average < 0 ? latency : average + EWMA_WEIGHT * (latency - average);
+
+	success();
+    }
+
+    /**
+     * Records an answer whose latency is not representative, eg. a
+     * revalidated cached response.
+     */
+    synchronized void success() {
+	consecutiveFailures = 0;
+	state = State.CLOSED;
+    }
+
+    synchronized void failure() {
+	consecutiveFailures++;
+	if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= FAILURES_TO_OPEN)) {
+	    state = State.OPEN;
+	    openedAt = System.currentTimeMillis();
+	}
+    }
+
+    /**
+     * @return the {@code p} quantile of the recent latencies in milliseconds,
+     * or -1 if there are too few samples yet
+     */
+    synchronized long percentile(double p) {
+	if (count < MIN_SAMPLES) {
+	    return -1;
+	}
+	if (sorted == null) {
+	    sorted = Arrays.copyOf(latencies, count);
+	    Arrays.sort(sorted);
+	}
+	return sorted[Math.min(count - 1, (int) Math.ceil(p * count) - 1)];
+    }
+}
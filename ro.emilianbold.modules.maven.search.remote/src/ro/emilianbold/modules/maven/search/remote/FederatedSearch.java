@@ -0,0 +1,249 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+import org.netbeans.modules.maven.indexer.api.QueryField;
+import org.netbeans.modules.maven.indexer.api.RepositoryInfo;
+import org.netbeans.modules.maven.indexer.spi.GenericFindQuery;
+import org.netbeans.modules.maven.indexer.spi.ResultImplementation;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Sends a search to every handled repository in parallel and merges the
+ * answers.
+ *
+ * The result is returned as soon as the fastest repository answered and stays
+ * partial until the others did. An artifact found in several repositories is
+ * listed once, from the repository that comes first in the order given by
+ * the caller, the one Maven would resolve it from.
+ *
+ * Repositories searched through the same endpoints, eg. Central and its
+ * mirrors, resolve to one search which is sent once; its results are labeled
+ * with the first of them in the caller's order.
+ */
+/* package protected */ final class FederatedSearch implements GenericFindQuery {
+
+    private final static int MAX_WAIT = Integer.getInteger("maven.search.remote.timeout.wait", 30) * 1000; //NOI18N
+
+    private final static RequestProcessor RP = new RequestProcessor(FederatedSearch.class.getName(), 8);
+
+    private final Function<RepositoryInfo, MavenCentralGenericFindQuery> resolver;
+
+    /**
+     * @param resolver the search of a repository, null if it is not handled;
+     * repositories with the same endpoints get the same search
+     */
+    FederatedSearch(Function<RepositoryInfo, MavenCentralGenericFindQuery> resolver) {
+	this.resolver = resolver;
+    }
+
+    @Override
+    public ResultImplementation<NBVersionInfo> find(List<QueryField> fields, List<RepositoryInfo> repos) {
+	return search(repos, (MavenCentralGenericFindQuery q) -> q.find(fields, repos));
+    }
+
+    ResultImplementation<NBVersionInfo> search(List<RepositoryInfo> repos, Function<MavenCentralGenericFindQuery, ResultImplementation<NBVersionInfo>> search) {
+	//search -> the id of the repository its results stand for
+	Map<MavenCentralGenericFindQuery, String> targets = new LinkedHashMap<>();
+	for (RepositoryInfo r : repos) {
+	    MavenCentralGenericFindQuery q = resolver.apply(r);
+	    if (q != null) {
+		targets.putIfAbsent(q, r.getId());
+	    }
+	}
+	if (targets.isEmpty()) {
+	    return Utils.emptyResult();
+	}
+	if (targets.size() == 1) {
+	    Map.Entry<MavenCentralGenericFindQuery, String> target = targets.entrySet().iterator().next();
+	    return search(target.getKey(), target.getValue(), search);
+	}
+
+	List<CompletableFuture<ResultImplementation<NBVersionInfo>>> parts = new ArrayList<>(targets.size());
+	for (Map.Entry<MavenCentralGenericFindQuery, String> target : targets.entrySet()) {
+	    CompletableFuture<ResultImplementation<NBVersionInfo>> part = new CompletableFuture<>();
+	    RP.post(() -> {
+		try {
+		    part.complete(search(target.getKey(), target.getValue(), search));
+		} catch (RuntimeException ex) {
+		    part.completeExceptionally(ex);
+		}
+	    });
+	    parts.add(part);
+	}
+
+	try {
+	    CompletableFuture.anyOf(parts.toArray(new CompletableFuture<?>[parts.size()])).get(MAX_WAIT, TimeUnit.MILLISECONDS);
+	} catch (InterruptedException ex) {
+	    Thread.currentThread().interrupt();
+	} catch (ExecutionException | TimeoutException ex) {
+	    //the other repositories may still answer
+	}
+	return new MergedResult(parts);
+    }
+
+    private static ResultImplementation<NBVersionInfo> search(MavenCentralGenericFindQuery q, String repoId, Function<MavenCentralGenericFindQuery, ResultImplementation<NBVersionInfo>> search) {
+	ResultImplementation<NBVersionInfo> result = search.apply(q);
+	if (repoId.equals(q.getRepositoryId())) {
+	    return result;
+	}
+	return Utils.transform(result, (List<NBVersionInfo> infos) -> Utils.withRepository(infos, repoId));
+    }
+
+    private static ResultImplementation<NBVersionInfo> now(CompletableFuture<ResultImplementation<NBVersionInfo>> part) {
+	return part.isDone() && !part.isCompletedExceptionally() ? part.getNow(null) : null;
+    }
+
+    private static final class MergedResult implements ResultImplementation<NBVersionInfo> {
+
+	private final List<CompletableFuture<ResultImplementation<NBVersionInfo>>> parts;
+	private List<List<NBVersionInfo>> mergedFrom;
+	private List<NBVersionInfo> merged;
+
+	MergedResult(List<CompletableFuture<ResultImplementation<NBVersionInfo>>> parts) {
+	    this.parts = parts;
+	}
+
+	@Override
+	public boolean isPartial() {
+	    for (CompletableFuture<ResultImplementation<NBVersionInfo>> part : parts) {
+		if (!part.isDone()) {
+		    return true;
+		}
+		ResultImplementation<NBVersionInfo> r = now(part);
+		if (r != null && r.isPartial()) {
+		    return true;
+		}
+	    }
+	    return false;
+	}
+
+	@Override
+	public void waitForSkipped() {
+	    //in parallel: the parts were started together, only the last matters
+	    for (CompletableFuture<ResultImplementation<NBVersionInfo>> part : parts) {
+		try {
+		    part.get(MAX_WAIT, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException ex) {
+		    Thread.currentThread().interrupt();
+		    return;
+		} catch (ExecutionException | TimeoutException ex) {
+		    //merge without it
+		}
+	    }
+	    List<CompletableFuture<Void>> skipped = new ArrayList<>(parts.size());
+	    for (CompletableFuture<ResultImplementation<NBVersionInfo>> part : parts) {
+		ResultImplementation<NBVersionInfo> r = now(part);
+		if (r != null && r.isPartial()) {
+		    skipped.add(CompletableFuture.runAsync(r::waitForSkipped, RP));
+		}
+	    }
+	    try {
+		CompletableFuture.allOf(skipped.toArray(new CompletableFuture<?>[skipped.size()])).get();
+	    } catch (InterruptedException ex) {
+		Thread.currentThread().interrupt();
+	    } catch (ExecutionException ex) {
+		//keep what was loaded
+	    }
+	}
+
+	@Override
+	public synchronized List<NBVersionInfo> getResults() {
+	    List<List<NBVersionInfo>> current = new ArrayList<>(parts.size());
+	    for (CompletableFuture<ResultImplementation<NBVersionInfo>> part : parts) {
+		ResultImplementation<NBVersionInfo> r = now(part);
+		current.add(r != null ? r.getResults() : null);
+	    }
+	    if (merged == null || !sameLists(current, mergedFrom)) {
+		merged = merge(current);
+		mergedFrom = current;
+	    }
+	    return merged;
+	}
+
+	private static boolean sameLists(List<List<NBVersionInfo>> a, List<List<NBVersionInfo>> b) {
+	    for (int i = 0; i < a.size(); i++) {
+		if (a.get(i) != b.get(i)) {
+		    return false;
+		}
+	    }
+	    return true;
+	}
+
+	private static List<NBVersionInfo> merge(List<List<NBVersionInfo>> lists) {
+	    int size = 0;
+	    for (List<NBVersionInfo> l : lists) {
+		size += l != null ? l.size() : 0;
+	    }
+	    List<NBVersionInfo> result = new ArrayList<>(size);
+	    Set<String> seen = new HashSet<>(size * 2);
+	    for (List<NBVersionInfo> l : lists) {
+		if (l == null) {
+		    continue;
+		}
+		for (NBVersionInfo info : l) {
+		    String key = info.getGroupId() + ':' + info.getArtifactId() + ':' + info.getVersion() + ':' + info.getType() + ':' + info.getClassifier();
+		    if (seen.add(key)) {
+			result.add(info);
+		    }
+		}
+	    }
+	    return result;
+	}
+
+	@Override
+	public int getTotalResultCount() {
+	    if (!isPartial()) {
+		return getReturnedResultCount();
+	    }
+	    //an upper bound, duplicates are only known once loaded
+	    int total = 0;
+	    for (CompletableFuture<ResultImplementation<NBVersionInfo>> part : parts) {
+		ResultImplementation<NBVersionInfo> r = now(part);
+		total += r != null ? r.getTotalResultCount() : 0;
+	    }
+	    return Math.max(total, getReturnedResultCount());
+	}
+
+	@Override
+	public int getReturnedResultCount() {
+	    return getResults().size();
+	}
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram with power of two buckets: recording is a few atomic
+ * increments, percentiles are accurate up to a factor of two which is enough
+ * to tell a 20 ms response from a 2 s one.
+ */
+/* package protected */ final class Histogram {
+
+    //bucket 0 holds 0, bucket i holds [2^(i-1), 2^i)
+    private static final int BUCKETS = 48;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long value) {
+	if (value < 0) {
+	    return;
+	}
+	buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value)));
+	count.increment();
+	sum.add(value);
+	long m = max.get();
+	while (value > m && !max.compareAndSet(m, value)) {
+	    m = max.get();
+	}
+    }
+
+    long getCount() {
+	return count.sum();
+    }
+
+    long getMean() {
+	long c = count.sum();
+	return c == 0 ? 0 : sum.sum() / c;
+    }
+
+    long getMax() {
+	return max.get();
+    }
+
+    /**
+     * @return the upper bound of the bucket holding the {@code p} quantile,
+     * never more than the maximum recorded value
+     */
+    long percentile(double p) {
+	long[] snapshot = new long[BUCKETS];
+	long total = 0;
+	for (int i = 0; i < BUCKETS; i++) {
+	    snapshot[i] = buckets.get(i);
+	    total += snapshot[i];
+	}
+	if (total == 0) {
+	    return 0;
+	}
+	long rank = Math.max(1, (long) Math.ceil(p * total));
+	long seen = 0;
+	for (int i = 0; i < BUCKETS; i++) {
+	    seen += snapshot[i];
+	    if (seen >= rank) {
+		return i == 0 ? 0 : Math.min((1L << i) - 1, max.get());
+	    }
+	}
+	return max.get();
+    }
+
+    void reset() {
+	for (int i = 0; i < BUCKETS; i++) {
+	    buckets.set(i, 0);
+	}
+	count.reset();
+	sum.reset();
+	max.set(0);
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Summary of a {@link Histogram} of durations, in milliseconds.
+ */
+public final class LatencySnapshot {
+
+    private final long count;
+    private final double mean;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+    private final double max;
+
+    @ConstructorProperties({"count", "mean", "p50", "p90", "p99", "max"}) //NOI18N
+    public LatencySnapshot(long count, double mean, double p50, double p90, double p99, double max) {
+	this.count = count;
+	this.mean = mean;
+	this.p50 = p50;
+	this.p90 = p90;
+	this.p99 = p99;
+	this.max = max;
+    }
+
+    /* package protected */ static LatencySnapshot of(Histogram micros) {
+	return new LatencySnapshot(micros.getCount(),
+		micros.getMean() / 1000.0,
+		micros.percentile(0.5) / 1000.0,
+		micros.percentile(0.9) / 1000.0,
+		micros.percentile(0.99) / 1000.0,
+		micros.getMax() / 1000.0);
+    }
+
+    public long getCount() {
+	return count;
+    }
+
+    public double getMean() {
+	return mean;
+    }
+
+    public double getP50() {
+	return p50;
+    }
+
+    public double getP90() {
+	return p90;
+    }
+
+    public double getP99() {
+	return p99;
+    }
+
+    public double getMax() {
+	return max;
+    }
+}
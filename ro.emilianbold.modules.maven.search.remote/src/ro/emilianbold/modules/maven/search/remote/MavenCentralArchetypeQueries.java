@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.netbeans.api.progress.ProgressHandle;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+import org.netbeans.modules.maven.indexer.api.RepositoryInfo;
+import org.netbeans.modules.maven.indexer.spi.ArchetypeQueries;
+import org.netbeans.modules.maven.indexer.spi.ResultImplementation;
+import org.openide.util.NbBundle.Messages;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Archetypes from the Central archetype catalog.
+ *
+ * The catalog is parsed with a streaming reader and kept in memory and in the
+ * persistent store. Once older than its time to live it is revalidated in the
+ * background; the OkHttp cache turns that into a conditional request, and an
+ * unchanged catalog is not parsed again.
+ */
+/* package protected */ class MavenCentralArchetypeQueries implements ArchetypeQueries {
+
+    private final static String CATALOG_URL = System.getProperty("maven.search.remote.archetype.catalog", "https://repo.maven.apache.org/maven2/archetype-catalog.xml"); //NOI18N
+    private final static long CATALOG_TTL = Integer.getInteger("maven.search.remote.archetype.ttl", 24 * 60 * 60) * 1000L; //NOI18N
+    private final static String STORE_KEY = "archetype-catalog"; //NOI18N
+
+    private final static RequestProcessor RP = new RequestProcessor(MavenCentralArchetypeQueries.class.getName());
+
+    private final OkHttpClient client;
+    private final PersistentResultStore store;
+    private final RequestProcessor.Task refreshTask = RP.create(() -> refresh());
+
+    private volatile SearchPage catalog;
+    private volatile long loaded;
+
+    MavenCentralArchetypeQueries(OkHttpClient client, PersistentResultStore store) {
+	this.client = client;
+	this.store = store;
+    }
+
+    @Override
+    public ResultImplementation<NBVersionInfo> findArchetypes(List<RepositoryInfo> repos) {
+	SearchPage page = catalog;
+	if (page == null) {
+	    synchronized (this) {
+		page = catalog;
+		if (page == null) {
+		    PersistentResultStore.Stored stored = store.get(STORE_KEY);
+		    if (stored != null) {
+			page = stored.getPage();
+			catalog = page;
+			loaded = System.currentTimeMillis() - stored.getAge();
+		    } else {
+			refresh();
+			page = catalog;
+		    }
+		}
+	    }
+	}
+	if (System.currentTimeMillis() - loaded > CATALOG_TTL) {
+	    refreshTask.schedule(0);
+	}
+	return page != null ? Utils.create(page.getInfos()) : Utils.emptyResult();
+    }
+
+    @Messages({
+	"# {0} - URL",
+	"archetype.catalog=Loading archetype catalog: {0}"
+    })
+    private void refresh() {
+	ProgressHandle ph = ProgressHandle.createHandle(Bundle.archetype_catalog(CATALOG_URL));
+	ph.start();
+	try {
+	    Request request = new Request.Builder()
+		    .url(CATALOG_URL)
+		    .build();
+	    try (Response response = client.newCall(request).execute()) {
+		if (!response.isSuccessful()) {
+		    Logger.getLogger(MavenCentralArchetypeQueries.class.getName()).log(Level.INFO, "Cannot load {0}: {1}", new Object[]{CATALOG_URL, response.code()}); //NOI18N
+		    return;
+		}
+		Response network = response.networkResponse();
+		boolean unchanged = network == null || network.code() == 304;
+		if (unchanged && catalog != null) {
+		    //served by or revalidated against the HTTP cache
+		    loaded = System.currentTimeMillis();
+		    return;
+		}
+		try (InputStream in = response.body().byteStream()) {
+		    List<NBVersionInfo> infos = parse(in);
+		    SearchPage page = new SearchPage(infos.size(), infos.size(), infos);
+		    catalog = page;
+		    loaded = System.currentTimeMillis();
+		    store.put(STORE_KEY, page);
+		}
+	    }
+	} catch (IOException | XMLStreamException ex) {
+	    Logger.getLogger(MavenCentralArchetypeQueries.class.getName()).log(Level.INFO, null, ex);
+	} finally {
+	    ph.finish();
+	}
+    }
+
+    /**
+     * Reads the {@code archetype} elements of the catalog one at a time.
+     * Repeated groupIds share one string.
+     */
+    static List<NBVersionInfo> parse(InputStream in) throws XMLStreamException {
+	XMLInputFactory factory = XMLInputFactory.newInstance();
+	factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+	factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+	List<NBVersionInfo> infos = new ArrayList<>();
+	Map<String, String> groupIds = new HashMap<>();
+	Map<String, String> fields = new HashMap<>();
+	boolean inArchetype = false;
+	String element = null;
+	StringBuilder text = new StringBuilder();
+
+	XMLStreamReader r = factory.createXMLStreamReader(in);
+	try {
+	    while (r.hasNext()) {
+		switch (r.next()) {
+		    case XMLStreamConstants.START_ELEMENT:
+			if ("archetype".equals(r.getLocalName())) { //NOI18N
+			    inArchetype = true;
+			    fields.clear();
+			} else if (inArchetype) {
+			    element = r.getLocalName();
+			    text.setLength(0);
+			}
+			break;
+		    case XMLStreamConstants.CHARACTERS:
+		    case XMLStreamConstants.CDATA:
+			if (element != null) {
+			    text.append(r.getText());
+			}
+			break;
+		    case XMLStreamConstants.END_ELEMENT:
+			if ("archetype".equals(r.getLocalName())) { //NOI18N
+			    inArchetype = false;
+			    NBVersionInfo info = toInfo(fields, groupIds);
+			    if (info != null) {
+				infos.add(info);
+			    }
+			} else if (element != null) {
+			    fields.put(element, text.toString().trim());
+			    element = null;
+			}
+			break;
+		    default:
+			break;
+		}
+	    }
+	} finally {
+	    r.close();
+	}
+	return infos;
+    }
+
+    private static NBVersionInfo toInfo(Map<String, String> fields, Map<String, String> groupIds) {
+	String groupId = fields.get("groupId"); //NOI18N
+	String artifactId = fields.get("artifactId"); //NOI18N
+	String version = fields.get("version"); //NOI18N
+	if (groupId == null || artifactId == null || version == null) {
+	    return null;
+	}
+	String repository = fields.get("repository"); //NOI18N
+	if (repository != null && !repository.isEmpty()
+		&& !repository.contains("repo.maven.apache.org") && !repository.contains("repo1.maven.org")) { //NOI18N
+	    //lives in some other repository
+	    return null;
+	}
+	String description = fields.get("description"); //NOI18N
+	return new NBVersionInfo(
+		"central", //NOI18N
+		groupIds.computeIfAbsent(groupId, (String g) -> g), artifactId, version,
+		"jar", //NOI18N
+		"maven-archetype", //NOI18N
+		null, description != null && !description.isEmpty() ? description : null, null);
+    }
+}
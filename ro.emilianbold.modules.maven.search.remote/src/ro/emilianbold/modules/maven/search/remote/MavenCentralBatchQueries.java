@@ -0,0 +1,307 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+import org.netbeans.modules.maven.indexer.api.RepositoryInfo;
+import org.openide.util.RequestProcessor;
+import ro.emilianbold.modules.maven.search.remote.QueryScheduler.Priority;
+
+/**
+ * The versions of many artifacts at once, eg. to look for updates of every
+ * dependency of a project.
+ *
+ * The coordinates are packed into as few {@code (g AND a) OR (g AND a) ...}
+ * queries as the query length allows. The chunks, and the pages of a chunk
+ * once its first page told how many documents match, are fetched in
+ * parallel; the combined documents are split back by their coordinates.
+ *
+ * Pages are loaded like those of any search, through its caches and shared
+ * in-flight requests. A chunk matching more than
+ * {@link PagedResult#MAX_RESULTS} documents is split in two, and the later
+ * pages of a chunk are fetched {@link PagedResult#PARALLEL_PAGES} at a time.
+ */
+/* package protected */ final class MavenCentralBatchQueries {
+
+    //a conservative bound, proxies and servers commonly reject URLs over 8K
+    private final static int MAX_QUERY_LENGTH = Integer.getInteger("maven.search.remote.batch.length", 4000); //NOI18N
+    //Solr rejects queries with more than 1024 boolean clauses
+    private final static int MAX_COORDINATES = Math.min(Integer.getInteger("maven.search.remote.batch.size", 100), 300); //NOI18N
+    private final static int ROWS = Integer.getInteger("maven.search.remote.batch.rows", 200); //NOI18N
+    private final static int MAX_WAIT = Integer.getInteger("maven.search.remote.timeout.wait", 30) * 1000; //NOI18N
+    private final static long MEMORY_CACHE_TTL = Integer.getInteger("maven.search.remote.memory.ttl", 300) * 1000L; //NOI18N
+    private final static int MEMORY_CACHE_ENTRIES = 4096;
+
+    private final static String FIELDS = "id,g,a,v,p,ec"; //NOI18N
+
+    private final static RequestProcessor RP = new RequestProcessor(MavenCentralBatchQueries.class.getName(), MavenCentralGenericFindQuery.MAX_REQUESTS);
+    private final static RequestProcessor PAGES_RP = new RequestProcessor(MavenCentralBatchQueries.class.getName() + ".pages", PagedResult.PARALLEL_PAGES); //NOI18N
+
+    private final Function<RepositoryInfo, MavenCentralGenericFindQuery> resolver;
+    //by repository id and groupId:artifactId
+    private final ResultCache<SearchPage> cache = new ResultCache<>(MEMORY_CACHE_ENTRIES, Long.MAX_VALUE, MEMORY_CACHE_TTL, SearchPage::estimateSize);
+
+    /**
+     * One page of the response to a chunk, split by coordinates.
+     */
+    private static final class Page {
+
+	private final long numFound;
+	private final Map<String, List<NBVersionInfo>> infos;
+
+	Page(long numFound, Map<String, List<NBVersionInfo>> infos) {
+	    this.numFound = numFound;
+	    this.infos = infos;
+	}
+    }
+
+    /**
+     * @param resolver the search of a repository, null if it is not handled
+     */
+    MavenCentralBatchQueries(Function<RepositoryInfo, MavenCentralGenericFindQuery> resolver) {
+	this.resolver = resolver;
+    }
+
+    /**
+     * @param groupArtifactIds {@code groupId:artifactId} pairs, others are
+     * ignored
+     * @return the versions of each pair in the given order; a version found
+     * in several repositories comes from the first of {@code repos}. Pairs
+     * whose lookup failed or timed out are missing.
+     */
+    Map<String, List<NBVersionInfo>> getVersions(Collection<String> groupArtifactIds, List<RepositoryInfo> repos) {
+	Set<String> coordinates = new LinkedHashSet<>(groupArtifactIds.size());
+	for (String c : groupArtifactIds) {
+	    int colon = c.indexOf(':');
+	    if (colon > 0 && colon < c.length() - 1 && c.indexOf(':', colon + 1) == -1) {
+		coordinates.add(c);
+	    }
+	}
+
+	//search -> the id of the repository its results stand for, see FederatedSearch
+	Map<MavenCentralGenericFindQuery, String> targets = new LinkedHashMap<>();
+	for (RepositoryInfo r : repos) {
+	    MavenCentralGenericFindQuery q = resolver.apply(r);
+	    if (q != null) {
+		targets.putIfAbsent(q, r.getId());
+	    }
+	}
+	if (coordinates.isEmpty() || targets.isEmpty()) {
+	    return Collections.emptyMap();
+	}
+
+	List<Map<String, List<NBVersionInfo>>> found = new ArrayList<>(targets.size());
+	List<String> repoIds = new ArrayList<>(targets.size());
+	List<CompletableFuture<Void>> pending = new ArrayList<>();
+	for (Map.Entry<MavenCentralGenericFindQuery, String> target : targets.entrySet()) {
+	    MavenCentralGenericFindQuery q = target.getKey();
+	    Map<String, List<NBVersionInfo>> byCoordinate = new ConcurrentHashMap<>();
+	    List<String> missing = new ArrayList<>(coordinates.size());
+	    for (String c : coordinates) {
+		SearchPage cached = cache.get(cacheKey(q, c));
+		if (cached != null) {
+		    byCoordinate.put(c, cached.getInfos());
+		} else {
+		    missing.add(c);
+		}
+	    }
+	    for (List<String> chunk : chunks(missing)) {
+		pending.add(resolve(q, chunk, byCoordinate));
+	    }
+	    found.add(byCoordinate);
+	    repoIds.add(target.getValue());
+	}
+
+	if (!pending.isEmpty()) {
+	    try {
+		CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[pending.size()])).get(MAX_WAIT, TimeUnit.MILLISECONDS);
+	    } catch (InterruptedException ex) {
+		Thread.currentThread().interrupt();
+	    } catch (ExecutionException | TimeoutException ex) {
+		Logger.getLogger(MavenCentralBatchQueries.class.getName()).log(Level.INFO, null, ex);
+	    }
+	}
+
+	Map<String, List<NBVersionInfo>> result = new LinkedHashMap<>(coordinates.size() * 4 / 3 + 1);
+	for (String c : coordinates) {
+	    List<NBVersionInfo> merged = null;
+	    Set<String> seen = targets.size() > 1 ? new HashSet<>() : null;
+	    for (int i = 0; i < found.size(); i++) {
+		List<NBVersionInfo> infos = found.get(i).get(c);
+		if (infos == null) {
+		    continue;
+		}
+		infos = Utils.withRepository(infos, repoIds.get(i));
+		if (seen == null) {
+		    merged = infos;
+		    break;
+		}
+		if (merged == null) {
+		    merged = new ArrayList<>(infos.size());
+		}
+		for (NBVersionInfo info : infos) {
+		    if (seen.add(info.getVersion() + ':' + info.getType() + ':' + info.getClassifier())) {
+			merged.add(info);
+		    }
+		}
+	    }
+	    if (merged != null) {
+		result.put(c, merged);
+	    }
+	}
+	return result;
+    }
+
+    private static String cacheKey(MavenCentralGenericFindQuery q, String coordinate) {
+	return q.getRepositoryId() + '|' + coordinate;
+    }
+
+    /**
+     * Groups the coordinates so each query stays below
+     * {@link #MAX_QUERY_LENGTH} and {@link #MAX_COORDINATES}.
+     */
+    private static List<List<String>> chunks(List<String> coordinates) {
+	int base = new SolrQuery().core("gav").fields(FIELDS).toQuery(Integer.MAX_VALUE, ROWS).length() + 6; //NOI18N
+	List<List<String>> chunks = new ArrayList<>();
+	List<String> chunk = new ArrayList<>();
+	int length = base;
+	for (String c : coordinates) {
+	    //"%20OR%20" and the parentheses
+	    int added = clause(c).length() + 14;
+	    if (!chunk.isEmpty() && (length + added > MAX_QUERY_LENGTH || chunk.size() >= MAX_COORDINATES)) {
+		chunks.add(chunk);
+		chunk = new ArrayList<>();
+		length = base;
+	    }
+	    chunk.add(c);
+	    length += added;
+	}
+	if (!chunk.isEmpty()) {
+	    chunks.add(chunk);
+	}
+	return chunks;
+    }
+
+    private static SolrQuery clause(String coordinate) {
+	int colon = coordinate.indexOf(':');
+	return new SolrQuery()
+		.phrase("g", coordinate.substring(0, colon)) //NOI18N
+		.phrase("a", coordinate.substring(colon + 1)); //NOI18N
+    }
+
+    /**
+     * Fetches every page of the query for {@code chunk} and puts the
+     * versions of its coordinates in {@code into}. Nothing is put if a page
+     * failed. A single coordinate with more than
+     * {@link PagedResult#MAX_RESULTS} versions keeps the first ones, as in a
+     * search.
+     */
+    private CompletableFuture<Void> resolve(MavenCentralGenericFindQuery q, List<String> chunk, Map<String, List<NBVersionInfo>> into) {
+	List<SolrQuery> clauses = new ArrayList<>(chunk.size());
+	for (String c : chunk) {
+	    clauses.add(clause(c));
+	}
+	SolrQuery query = new SolrQuery().core("gav").fields(FIELDS).anyOf(clauses); //NOI18N
+	return page(q, query, 0, ROWS, Priority.NORMAL, RP).thenCompose((Page first) -> {
+	    if (first == null) {
+		return CompletableFuture.completedFuture(null);
+	    }
+	    if (first.numFound > PagedResult.MAX_RESULTS && chunk.size() > 1) {
+		int half = chunk.size() / 2;
+		return CompletableFuture.allOf(
+			resolve(q, chunk.subList(0, half), into),
+			resolve(q, chunk.subList(half, chunk.size()), into));
+	    }
+	    long end = Math.min(first.numFound, PagedResult.MAX_RESULTS);
+	    List<CompletableFuture<Page>> rest = new ArrayList<>();
+	    for (long start = ROWS; start < end; start += ROWS) {
+		rest.add(page(q, query, (int) start, (int) Math.min(ROWS, end - start), Priority.BACKGROUND, PAGES_RP));
+	    }
+	    return CompletableFuture.allOf(rest.toArray(new CompletableFuture<?>[rest.size()])).thenRun(() -> {
+		Map<String, List<NBVersionInfo>> all = first.infos;
+		for (CompletableFuture<Page> f : rest) {
+		    Page p = f.join();
+		    if (p == null) {
+			//incomplete, better no answer than a wrong one
+			return;
+		    }
+		    for (Map.Entry<String, List<NBVersionInfo>> e : p.infos.entrySet()) {
+			all.computeIfAbsent(e.getKey(), (String k) -> new ArrayList<>()).addAll(e.getValue());
+		    }
+		}
+		for (String c : chunk) {
+		    List<NBVersionInfo> infos = all.getOrDefault(c, Collections.<NBVersionInfo>emptyList());
+		    SearchPage page = new SearchPage(infos.size(), infos.size(), infos);
+		    cache.put(cacheKey(q, c), page);
+		    into.put(c, page.getInfos());
+		}
+	    });
+	});
+    }
+
+    /**
+     * @return the page or null if it could not be fetched
+     */
+    private static CompletableFuture<Page> page(MavenCentralGenericFindQuery q, SolrQuery query, int start, int rows, Priority priority, RequestProcessor rp) {
+	CompletableFuture<Page> page = new CompletableFuture<>();
+	rp.post(() -> {
+	    try {
+		SearchPage loaded = q.load(query.toQuery(start, rows), priority, null);
+		if (loaded == null) {
+		    page.complete(null);
+		    return;
+		}
+		Map<String, List<NBVersionInfo>> infos = new HashMap<>();
+		for (NBVersionInfo info : loaded.getInfos()) {
+		    infos.computeIfAbsent(info.getGroupId() + ':' + info.getArtifactId(), (String k) -> new ArrayList<>()).add(info);
+		}
+		page.complete(new Page(loaded.getNumFound(), infos));
+	    } catch (RuntimeException ex) {
+		page.completeExceptionally(ex);
+	    }
+	});
+	return page;
+    }
+}
@@ -0,0 +1,339 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+import org.netbeans.modules.maven.indexer.api.RepositoryInfo;
+import org.netbeans.modules.maven.indexer.spi.ChecksumQueries;
+import org.netbeans.modules.maven.indexer.spi.ResultImplementation;
+import org.openide.util.RequestProcessor;
+import ro.emilianbold.modules.maven.search.remote.SolrResponseParser.SolrDoc;
+
+/**
+ * SHA-1 to GAV lookups using the {@code 1:} field of the search.
+ *
+ * Lookups arriving within a short window are combined into one OR query.
+ * Released artifacts never change, so matches are cached for good. Unknown
+ * checksums are only remembered for
+ * {@code maven.search.remote.checksum.miss.ttl} seconds: the artifact may be
+ * published, or indexed, later.
+ */
+/* package protected */ class MavenCentralChecksumQueries implements ChecksumQueries {
+
+    private final static int BATCH_SIZE = Integer.getInteger("maven.search.remote.checksum.batch", 20); //NOI18N
+    private final static int BATCH_WINDOW = Integer.getInteger("maven.search.remote.checksum.window", 50); //NOI18N
+    private final static int MAX_WAIT = Integer.getInteger("maven.search.remote.timeout.wait", 30) * 1000; //NOI18N
+    private final static int MEMORY_CACHE_ENTRIES = 4096;
+    private final static long MISS_TTL = Integer.getInteger("maven.search.remote.checksum.miss.ttl", 3600) * 1000L; //NOI18N
+
+    private final static Pattern SHA1 = Pattern.compile("[0-9a-f]{40}"); //NOI18N
+    private final static String STORE_PREFIX = "sha1:"; //NOI18N
+
+    private final static RequestProcessor RP = new RequestProcessor(MavenCentralChecksumQueries.class.getName(), 4);
+
+    private final MavenCentralGenericFindQuery findQuery;
+    private final PersistentResultStore store;
+    private final ResultCache<SearchPage> cache = new ResultCache<>(MEMORY_CACHE_ENTRIES, Long.MAX_VALUE, Long.MAX_VALUE, SearchPage::estimateSize);
+    private final ResultCache<SearchPage> misses = new ResultCache<>(MEMORY_CACHE_ENTRIES, Long.MAX_VALUE, MISS_TTL, SearchPage::estimateSize);
+
+    private final Map<String, CompletableFuture<List<NBVersionInfo>>> pending = new ConcurrentHashMap<>();
+    private final List<String> queue = new ArrayList<>();
+    private final RequestProcessor.Task batchTask = RP.create(() -> runBatch());
+
+    /**
+     * Whether the server returns the checksum of each document, which is
+     * needed to split a combined response. Unknown until the first batch.
+     */
+    private volatile Boolean batchingSupported;
+
+    MavenCentralChecksumQueries(MavenCentralGenericFindQuery findQuery, PersistentResultStore store) {
+	this.findQuery = findQuery;
+	this.store = store;
+    }
+
+    /**
+     * @param repos only Central and its mirrors are searched, the results
+     * carry the id of the first of them; null for Central
+     */
+    @Override
+    public ResultImplementation<NBVersionInfo> findBySHA1(String sha1, List<RepositoryInfo> repos) {
+	String repoId = null;
+	if (repos != null) {
+	    for (RepositoryInfo r : repos) {
+		if (Utils.isCentral(r)) {
+		    repoId = r.getId();
+		    break;
+		}
+	    }
+	    if (repoId == null) {
+		return Utils.emptyResult();
+	    }
+	}
+	String sha = sha1.toLowerCase(Locale.ENGLISH);
+	if (!SHA1.matcher(sha).matches()) {
+	    return Utils.emptyResult();
+	}
+	List<NBVersionInfo> infos = lookup(Collections.singleton(sha)).get(sha);
+	return Utils.create(repoId != null ? Utils.withRepository(infos, repoId) : infos);
+    }
+
+    /**
+     * Identifies many files at once; the digests are computed with mapped I/O
+     * and the lookups go out in as few requests as the batch size allows.
+     *
+     * @return the matching artifacts of each file, empty if unknown
+     */
+    public Map<File, List<NBVersionInfo>> findByFiles(Collection<File> files) {
+	Map<File, String> shas = new LinkedHashMap<>();
+	for (File f : files) {
+	    try {
+		shas.put(f, sha1(f));
+	    } catch (IOException ex) {
+		Logger.getLogger(MavenCentralChecksumQueries.class.getName()).log(Level.INFO, null, ex);
+	    }
+	}
+
+	Map<String, List<NBVersionInfo>> found = lookup(shas.values());
+	Map<File, List<NBVersionInfo>> result = new LinkedHashMap<>();
+	for (Map.Entry<File, String> e : shas.entrySet()) {
+	    result.put(e.getKey(), found.get(e.getValue()));
+	}
+	return result;
+    }
+
+    /**
+     * The one path of all lookups: answers what it can from the caches and
+     * queues the rest, so that concurrent callers share batches.
+     *
+     * @param shas lower case hex checksums
+     * @return the matching artifacts of each checksum, empty if unknown
+     */
+    private Map<String, List<NBVersionInfo>> lookup(Collection<String> shas) {
+	Map<String, List<NBVersionInfo>> result = new HashMap<>();
+	Map<String, CompletableFuture<List<NBVersionInfo>>> futures = new HashMap<>();
+	for (String sha : shas) {
+	    if (result.containsKey(sha) || futures.containsKey(sha)) {
+		continue;
+	    }
+	    List<NBVersionInfo> cached = getCached(sha);
+	    if (cached != null) {
+		result.put(sha, cached);
+	    } else {
+		futures.put(sha, submit(sha));
+	    }
+	}
+	result.putAll(await(futures));
+	return result;
+    }
+
+    /**
+     * @return the lower case hex SHA-1 of the file
+     */
+    static String sha1(File f) throws IOException {
+	MessageDigest digest;
+	try {
+	    digest = MessageDigest.getInstance("SHA-1"); //NOI18N
+	} catch (NoSuchAlgorithmException ex) {
+	    throw new IOException(ex);
+	}
+	try (RandomAccessFile raf = new RandomAccessFile(f, "r"); //NOI18N
+		FileChannel channel = raf.getChannel()) {
+	    long size = channel.size();
+	    final long chunk = 16 * 1024 * 1024;
+	    for (long position = 0; position < size; position += chunk) {
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(chunk, size - position));
+		digest.update(buffer);
+	    }
+	}
+	StringBuilder sb = new StringBuilder(40);
+	for (byte b : digest.digest()) {
+	    sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+	    sb.append(Character.forDigit(b & 0xf, 16));
+	}
+	return sb.toString();
+    }
+
+    /**
+     * @return the known matches, an empty list for a recent miss or null if
+     * the checksum has to be looked up
+     */
+    private List<NBVersionInfo> getCached(String sha) {
+	SearchPage page = cache.get(sha);
+	if (page == null) {
+	    PersistentResultStore.Stored stored = store.get(STORE_PREFIX + sha);
+	    if (stored != null) {
+		page = stored.getPage();
+		cache.put(sha, page);
+	    } else {
+		page = misses.get(sha);
+	    }
+	}
+	return page != null ? page.getInfos() : null;
+    }
+
+    private CompletableFuture<List<NBVersionInfo>> submit(String sha) {
+	CompletableFuture<List<NBVersionInfo>> created = new CompletableFuture<>();
+	CompletableFuture<List<NBVersionInfo>> existing = pending.putIfAbsent(sha, created);
+	if (existing != null) {
+	    return existing;
+	}
+	synchronized (queue) {
+	    queue.add(sha);
+	    if (queue.size() >= BATCH_SIZE) {
+		batchTask.schedule(0);
+	    } else if (queue.size() == 1) {
+		batchTask.schedule(BATCH_WINDOW);
+	    }
+	}
+	return created;
+    }
+
+    private Map<String, List<NBVersionInfo>> await(Map<String, CompletableFuture<List<NBVersionInfo>>> futures) {
+	Map<String, List<NBVersionInfo>> result = new HashMap<>();
+	long deadline = System.currentTimeMillis() + MAX_WAIT;
+	for (Map.Entry<String, CompletableFuture<List<NBVersionInfo>>> e : futures.entrySet()) {
+	    List<NBVersionInfo> infos = Collections.emptyList();
+	    try {
+		infos = e.getValue().get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+	    } catch (InterruptedException ex) {
+		Thread.currentThread().interrupt();
+		break;
+	    } catch (ExecutionException | TimeoutException ex) {
+		Logger.getLogger(MavenCentralChecksumQueries.class.getName()).log(Level.INFO, null, ex);
+	    }
+	    result.put(e.getKey(), infos);
+	}
+	return result;
+    }
+
+    private void runBatch() {
+	List<String> batch;
+	synchronized (queue) {
+	    batch = new ArrayList<>(queue.subList(0, Math.min(BATCH_SIZE, queue.size())));
+	    queue.subList(0, batch.size()).clear();
+	    if (!queue.isEmpty()) {
+		batchTask.schedule(0);
+	    }
+	}
+	if (batch.isEmpty()) {
+	    return;
+	}
+
+	if (batch.size() == 1 || !Boolean.FALSE.equals(batchingSupported)) {
+	    resolve(batch);
+	} else {
+	    //one request per checksum, in parallel
+	    for (String sha : batch) {
+		RP.post(() -> resolve(Collections.singletonList(sha)));
+	    }
+	}
+    }
+
+    private void resolve(List<String> batch) {
+	String solrQuery = new SolrQuery()
+		.fields("id,g,a,v,p,ec,1") //NOI18N
+		.rows(5 * batch.size())
+		.anyPhrase("1", batch) //NOI18N
+		.toQuery();
+
+	final Map<String, List<NBVersionInfo>> found = new HashMap<>();
+	final boolean[] untagged = new boolean[1];
+	final VersionInfoDecoder decoder = new VersionInfoDecoder("central");
+	long numFound = findQuery.queryCentralRepository(solrQuery, (SolrDoc doc) -> {
+	    String sha = doc.get("1"); //NOI18N
+	    if (sha == null && batch.size() == 1) {
+		sha = batch.get(0);
+	    }
+	    if (sha == null) {
+		untagged[0] = true;
+		return;
+	    }
+	    decoder.decode(doc, found.computeIfAbsent(sha.toLowerCase(Locale.ENGLISH), (String k) -> new ArrayList<>()));
+	});
+
+	if (numFound < 0) {
+	    //network or server failure, do not cache
+	    for (String sha : batch) {
+		complete(sha, Collections.<NBVersionInfo>emptyList());
+	    }
+	    return;
+	}
+	if (untagged[0]) {
+	    //cannot tell which document belongs to which checksum
+	    batchingSupported = false;
+	    for (String sha : batch) {
+		RP.post(() -> resolve(Collections.singletonList(sha)));
+	    }
+	    return;
+	}
+	if (batch.size() > 1) {
+	    batchingSupported = true;
+	}
+
+	for (String sha : batch) {
+	    List<NBVersionInfo> infos = found.getOrDefault(sha, Collections.<NBVersionInfo>emptyList());
+	    SearchPage page = new SearchPage(infos.size(), infos.size(), infos);
+	    if (infos.isEmpty()) {
+		misses.put(sha, page);
+	    } else {
+		cache.put(sha, page);
+		store.put(STORE_PREFIX + sha, page);
+	    }
+	    complete(sha, page.getInfos());
+	}
+    }
+
+    private void complete(String sha, List<NBVersionInfo> infos) {
+	CompletableFuture<List<NBVersionInfo>> f = pending.remove(sha);
+	if (f != null) {
+	    f.complete(infos);
+	}
+    }
+}
@@ -0,0 +1,393 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import javax.xml.stream.XMLStreamException;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.netbeans.modules.maven.indexer.api.NBArtifactInfo;
+import org.netbeans.modules.maven.indexer.api.NBGroupInfo;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+import org.netbeans.modules.maven.indexer.api.QueryField;
+import org.netbeans.modules.maven.indexer.api.RepositoryInfo;
+import org.netbeans.modules.maven.indexer.spi.DependencyInfoQueries;
+import org.netbeans.modules.maven.indexer.spi.ResultImplementation;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Finds which artifacts depend on a given one by reading POMs from Central.
+ *
+ * The search has no reverse dependency field, so the candidates are the
+ * artifacts released with the same groupId and version, ie. the other modules
+ * of a multi-module build. Only the first page of them is read and at most
+ * {@link #MAX_CANDIDATES} POMs are fetched per lookup, so a release train of
+ * hundreds of modules does not cost hundreds of downloads; dependants past
+ * the cap are not reported. The POMs are fetched in parallel and resolved
+ * against their parents and imported BOMs. Resolved models are shared
+ * between concurrent lookups and cached by GAV since released POMs never
+ * change.
+ */
+/* package protected */ class MavenCentralDependencyInfoQueries implements DependencyInfoQueries {
+
+    private final static String REPOSITORY_URL = System.getProperty("maven.search.remote.repository", "https://repo.maven.apache.org/maven2/"); //NOI18N
+    private final static int POM_THREADS = Integer.getInteger("maven.search.remote.pom.threads", Math.max(2, Runtime.getRuntime().availableProcessors())); //NOI18N
+    private final static int POM_CACHE_ENTRIES = Integer.getInteger("maven.search.remote.pom.cache", 1024); //NOI18N
+    private final static int MAX_WAIT = Integer.getInteger("maven.search.remote.timeout.wait", 30) * 1000; //NOI18N
+    private final static int MAX_DEPTH = 10;
+    final static int MAX_CANDIDATES = Integer.getInteger("maven.search.remote.usage.candidates", 32); //NOI18N
+
+    private final static RequestProcessor POM_RP = new RequestProcessor(MavenCentralDependencyInfoQueries.class.getName(), POM_THREADS);
+
+    private final OkHttpClient client;
+    private final MavenCentralGenericFindQuery findQuery;
+    private final ResultCache<Model> models = new ResultCache<>(POM_CACHE_ENTRIES, Long.MAX_VALUE, Long.MAX_VALUE, Model::estimateSize);
+    //guarded by itself
+    private final Map<String, Flight> inFlight = new HashMap<>();
+
+    MavenCentralDependencyInfoQueries(OkHttpClient client, MavenCentralGenericFindQuery findQuery) {
+	this.client = client;
+	this.findQuery = findQuery;
+    }
+
+    @Override
+    public ResultImplementation<NBGroupInfo> findDependencyUsageGroups(String groupId, String artifactId, String version, List<RepositoryInfo> repos) {
+	if (groupId == null || artifactId == null || version == null) {
+	    return Utils.create(Collections.<NBGroupInfo>emptyList());
+	}
+
+	QueryField g = new QueryField();
+	g.setField(QueryField.FIELD_GROUPID);
+	g.setValue(groupId);
+	QueryField v = new QueryField();
+	v.setField(QueryField.FIELD_VERSION);
+	v.setValue(version);
+	//the first page only, the rest would be cut by the cap anyway
+	ResultImplementation<NBVersionInfo> siblings = findQuery.find(Arrays.asList(g, v), repos);
+
+	Map<String, NBVersionInfo> candidates = new LinkedHashMap<>();
+	for (NBVersionInfo info : siblings.getResults()) {
+	    if (candidates.size() >= MAX_CANDIDATES) {
+		break;
+	    }
+	    //one entry per classifier/extension, one POM per artifact
+	    if (info.getArtifactId() != null && !artifactId.equals(info.getArtifactId())) {
+		candidates.putIfAbsent(info.getArtifactId(), info);
+	    }
+	}
+
+	Map<NBVersionInfo, CompletableFuture<Model>> resolving = new LinkedHashMap<>();
+	for (NBVersionInfo info : candidates.values()) {
+	    resolving.put(info, resolve(info.getGroupId(), info.getArtifactId(), info.getVersion()));
+	}
+	try {
+	    CompletableFuture.allOf(resolving.values().toArray(new CompletableFuture<?>[0])).get(MAX_WAIT, TimeUnit.MILLISECONDS);
+	} catch (InterruptedException ex) {
+	    Thread.currentThread().interrupt();
+	} catch (ExecutionException | TimeoutException ex) {
+	    //use whatever completed
+	    Logger.getLogger(MavenCentralDependencyInfoQueries.class.getName()).log(Level.FINE, null, ex);
+	}
+
+	Map<String, NBGroupInfo> groups = new LinkedHashMap<>();
+	Map<String, NBArtifactInfo> artifacts = new HashMap<>();
+	for (Map.Entry<NBVersionInfo, CompletableFuture<Model>> e : resolving.entrySet()) {
+	    Model model = e.getValue().isDone() && !e.getValue().isCompletedExceptionally() ? e.getValue().join() : null;
+	    if (model == null || !model.dependsOn(groupId, artifactId, version)) {
+		continue;
+	    }
+	    NBVersionInfo info = e.getKey();
+	    NBArtifactInfo artifact = artifacts.get(info.getGroupId() + ':' + info.getArtifactId());
+	    if (artifact == null) {
+		artifact = new NBArtifactInfo(info.getArtifactId());
+		artifacts.put(info.getGroupId() + ':' + info.getArtifactId(), artifact);
+		groups.computeIfAbsent(info.getGroupId(), (String name) -> new NBGroupInfo(name)).addAritfactInfo(artifact);
+	    }
+	    artifact.addVersionInfo(info);
+	}
+	return Utils.create(new ArrayList<>(groups.values()));
+    }
+
+    /**
+     * A model being resolved, shared by all lookups needing it.
+     */
+    private static final class Flight {
+
+	private final CompletableFuture<Model> future = new CompletableFuture<>();
+	//the GAVs of the flights this one waits for, its parent and BOMs
+	private final Set<String> waitsFor = new HashSet<>();
+    }
+
+    /**
+     * @see #resolve(String, String, String, List)
+     */
+    CompletableFuture<Model> resolve(String groupId, String artifactId, String version) {
+	return resolve(groupId, artifactId, version, Collections.<String>emptyList());
+    }
+
+    /**
+     * The model of {@code g:a:v} with its parents and imported BOMs applied.
+     * Concurrent requests for the same GAV share one future, unless sharing
+     * it would close a cycle: a BOM importing a BOM that imports it back,
+     * reached from both ends by concurrent lookups, would otherwise wait for
+     * itself.
+     *
+     * @param chain the GAVs currently being resolved by this lookup, the
+     * last one is the model waiting for this one
+     * @return the model, completed with null if the POM is not available,
+     * part of a cycle or not resolved in time
+     */
+    private CompletableFuture<Model> resolve(String groupId, String artifactId, String version, List<String> chain) {
+	final String key = groupId + ':' + artifactId + ':' + version;
+	if (chain.contains(key) || chain.size() > MAX_DEPTH) {
+	    return CompletableFuture.completedFuture(null);
+	}
+	Model cached = models.get(key);
+	if (cached != null) {
+	    return CompletableFuture.completedFuture(cached);
+	}
+
+	String waiting = chain.isEmpty() ? null : chain.get(chain.size() - 1);
+	final Flight flight;
+	synchronized (inFlight) {
+	    Flight existing = inFlight.get(key);
+	    if (existing != null && waiting != null && waitsFor(key, waiting)) {
+		return CompletableFuture.completedFuture(null);
+	    }
+	    if (waiting != null && inFlight.containsKey(waiting)) {
+		inFlight.get(waiting).waitsFor.add(key);
+	    }
+	    if (existing != null) {
+		return existing.future;
+	    }
+	    //models are put before their flight is removed, it may have just landed
+	    cached = models.get(key);
+	    if (cached != null) {
+		return CompletableFuture.completedFuture(cached);
+	    }
+	    flight = new Flight();
+	    inFlight.put(key, flight);
+	}
+
+	//also frees the entry if a lookup it shares does not finish
+	RequestProcessor.Task timeout = POM_RP.post(() -> finish(key, flight, null), MAX_WAIT);
+	final List<String> nextChain = new ArrayList<>(chain);
+	nextChain.add(key);
+	CompletableFuture.supplyAsync(() -> fetch(groupId, artifactId, version), POM_RP)
+		.thenCompose((PomInfo pom) -> pom == null ? CompletableFuture.completedFuture((Model) null) : build(pom, nextChain))
+		.whenComplete((Model model, Throwable ex) -> {
+		    try {
+			if (model != null) {
+			    models.put(key, model);
+			}
+			if (ex != null) {
+			    Logger.getLogger(MavenCentralDependencyInfoQueries.class.getName()).log(Level.FINE, key, ex);
+			}
+		    } finally {
+			timeout.cancel();
+			finish(key, flight, model);
+		    }
+		});
+	return flight.future;
+    }
+
+    /**
+     * @return true if the flight of {@code key} waits, maybe through
+     * others, for the flight of {@code waiting}
+     */
+    private boolean waitsFor(String key, String waiting) {
+	assert Thread.holdsLock(inFlight);
+	Set<String> visited = new HashSet<>();
+	Deque<String> pending = new ArrayDeque<>();
+	pending.push(key);
+	while (!pending.isEmpty()) {
+	    String k = pending.pop();
+	    if (k.equals(waiting)) {
+		return true;
+	    }
+	    Flight f = inFlight.get(k);
+	    if (f != null && visited.add(k)) {
+		f.waitsFor.forEach(pending::push);
+	    }
+	}
+	return false;
+    }
+
+    private void finish(String key, Flight flight, Model model) {
+	try {
+	    synchronized (inFlight) {
+		inFlight.remove(key, flight);
+	    }
+	} finally {
+	    flight.future.complete(model);
+	}
+    }
+
+    private CompletableFuture<Model> build(PomInfo pom, List<String> chain) {
+	CompletableFuture<Model> parent = pom.getParentArtifactId() == null
+		? CompletableFuture.completedFuture((Model) null)
+		: resolve(pom.getParentGroupId(), pom.getParentArtifactId(), pom.getParentVersion(), chain);
+	return parent.thenCompose((Model parentModel) -> {
+	    Model model = new Model(pom, parentModel);
+	    List<CompletableFuture<Model>> boms = pom.getManagedDependencies()
+		    .stream()
+		    .filter((PomInfo.Dependency d) -> d.isImport())
+		    .map((PomInfo.Dependency d) -> resolve(model.interpolate(d.getGroupId()), model.interpolate(d.getArtifactId()), model.interpolate(d.getVersion()), chain))
+		    .collect(Collectors.toList());
+	    return CompletableFuture.allOf(boms.toArray(new CompletableFuture<?>[0])).thenApply((Void v) -> {
+		for (CompletableFuture<Model> bom : boms) {
+		    model.importManaged(bom.join());
+		}
+		return model;
+	    });
+	});
+    }
+
+    private PomInfo fetch(String groupId, String artifactId, String version) {
+	if (groupId == null || artifactId == null || version == null || version.contains("${")) { //NOI18N
+	    return null;
+	}
+	String url = REPOSITORY_URL + groupId.replace('.', '/') + '/' + artifactId + '/' + version + '/' + artifactId + '-' + version + ".pom"; //NOI18N
+	Request request = new Request.Builder()
+		.url(url)
+		.build();
+	try (Response response = client.newCall(request).execute()) {
+	    if (!response.isSuccessful()) {
+		return null;
+	    }
+	    try (InputStream in = response.body().byteStream()) {
+		return PomInfo.parse(in);
+	    }
+	} catch (IOException | XMLStreamException ex) {
+	    Logger.getLogger(MavenCentralDependencyInfoQueries.class.getName()).log(Level.FINE, url, ex);
+	    throw new CompletionException(ex);
+	}
+    }
+
+    /**
+     * A POM with inherited coordinates, properties and dependency management
+     * applied.
+     */
+    static final class Model {
+
+	private final Map<String, String> properties = new HashMap<>();
+	private final Map<String, String> managed = new HashMap<>();
+	private final List<PomInfo.Dependency> dependencies;
+
+	Model(PomInfo pom, Model parent) {
+	    if (parent != null) {
+		properties.putAll(parent.properties);
+		managed.putAll(parent.managed);
+	    }
+	    properties.putAll(pom.getProperties());
+
+	    String groupId = pom.getGroupId() != null ? pom.getGroupId() : pom.getParentGroupId();
+	    String version = pom.getVersion() != null ? pom.getVersion() : pom.getParentVersion();
+	    for (String prefix : new String[]{"project.", "pom.", ""}) { //NOI18N
+		putIfNotNull(prefix + "groupId", groupId); //NOI18N
+		putIfNotNull(prefix + "artifactId", pom.getArtifactId()); //NOI18N
+		putIfNotNull(prefix + "version", version); //NOI18N
+	    }
+	    putIfNotNull("project.parent.groupId", pom.getParentGroupId()); //NOI18N
+	    putIfNotNull("project.parent.version", pom.getParentVersion()); //NOI18N
+
+	    for (PomInfo.Dependency d : pom.getManagedDependencies()) {
+		if (!d.isImport() && d.getVersion() != null) {
+		    managed.put(interpolate(d.getGroupId()) + ':' + interpolate(d.getArtifactId()), interpolate(d.getVersion()));
+		}
+	    }
+	    this.dependencies = pom.getDependencies();
+	}
+
+	private void putIfNotNull(String key, String value) {
+	    if (value != null) {
+		properties.put(key, value);
+	    }
+	}
+
+	void importManaged(Model bom) {
+	    if (bom != null) {
+		bom.managed.forEach(managed::putIfAbsent);
+	    }
+	}
+
+	String interpolate(String s) {
+	    if (s == null) {
+		return null;
+	    }
+	    for (int i = 0; i < MAX_DEPTH; i++) {
+		int start = s.indexOf("${"); //NOI18N
+		int end = start == -1 ? -1 : s.indexOf('}', start);
+		if (end == -1) {
+		    break;
+		}
+		String value = properties.get(s.substring(start + 2, end));
+		if (value == null) {
+		    break;
+		}
+		s = s.substring(0, start) + value + s.substring(end + 1);
+	    }
+	    return s;
+	}
+
+	boolean dependsOn(String groupId, String artifactId, String version) {
+	    for (PomInfo.Dependency d : dependencies) {
+		if (groupId.equals(interpolate(d.getGroupId())) && artifactId.equals(interpolate(d.getArtifactId()))) {
+		    String v = d.getVersion() != null ? interpolate(d.getVersion()) : managed.get(groupId + ':' + artifactId);
+		    //unresolvable or a range: give it the benefit of the doubt
+		    return v == null || v.contains("${") || v.startsWith("[") || v.startsWith("(") || v.equals(version); //NOI18N
+		}
+	    }
+	    return false;
+	}
+
+	long estimateSize() {
+	    return 256 + 128L * (properties.size() + managed.size() + dependencies.size());
+	}
+    }
+}
@@ -30,46 +30,77 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import okhttp3.CacheControl;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.JSONValue;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
 import org.openide.util.NbBundle.Messages;
+import org.openide.util.RequestProcessor;
 import org.netbeans.api.progress.ProgressHandle;
 import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
 import org.netbeans.modules.maven.indexer.api.QueryField;
 import org.netbeans.modules.maven.indexer.api.RepositoryInfo;
 import org.netbeans.modules.maven.indexer.spi.GenericFindQuery;
 import org.netbeans.modules.maven.indexer.spi.ResultImplementation;
+import ro.emilianbold.modules.maven.search.remote.QueryScheduler.Priority;
+import ro.emilianbold.modules.maven.search.remote.SolrResponseParser.SolrDoc;
 
 /* package protected */ class MavenCentralGenericFindQuery implements GenericFindQuery {
-    private final OkHttpClient client;
-    
-    private final static int SEARCH_ROWS = 500;
+    private final static int FIRST_PAGE_ROWS = Integer.getInteger("maven.search.remote.page.first", 50); //NOI18N
+    private final static int CLASSES_FIRST_PAGE_ROWS = Integer.getInteger("maven.search.remote.page.first.classes", 20); //NOI18N
+    private final static int COORDINATES_FIRST_PAGE_ROWS = Integer.getInteger("maven.search.remote.page.first.coordinates", 200); //NOI18N
+    private final static int NEWEST_OVERSAMPLING = Integer.getInteger("maven.search.remote.newest.oversampling", 3); //NOI18N
+    private final static int MAX_NEWEST_ROWS = 500;
+    private final static int MAX_WAIT = Integer.getInteger("maven.search.remote.timeout.wait", 30) * 1000; //NOI18N
+    final static int MAX_REQUESTS = Integer.getInteger("maven.search.remote.requests", 8); //NOI18N
+    private final static int DEBOUNCE = Integer.getInteger("maven.search.remote.debounce", 150); //NOI18N
+    private final static int MEMORY_CACHE_ENTRIES = Integer.getInteger("maven.search.remote.memory.entries", 256); //NOI18N
+    private final static long MEMORY_CACHE_SIZE_MB = Integer.getInteger("maven.search.remote.memory.size", 16) * 1024L * 1024L; //NOI18N
+    private final static long MEMORY_CACHE_TTL = Integer.getInteger("maven.search.remote.memory.ttl", 300) * 1000L; //NOI18N
+    private final static long MAX_STALENESS = Integer.getInteger("maven.search.remote.store.staleness", 7 * 24 * 60 * 60) * 1000L; //NOI18N
+
+    //what VersionInfoDecoder reads, the default core would also send the large "text" array
+    private final static String INFO_FIELDS = "id,g,a,v,latestVersion,p,ec"; //NOI18N
+
+    private final static RequestProcessor REFRESH_RP = new RequestProcessor(MavenCentralGenericFindQuery.class.getName(), 2);
+
+    private final String repoId;
+    private final SearchEndpoints endpoints;
+    private final SingleFlight<SearchPage> inFlight = new SingleFlight<>(MavenCentralGenericFindQuery.class.getName(), MAX_REQUESTS, DEBOUNCE, MAX_WAIT);
+    private final ResultCache<SearchPage> cache = new ResultCache<>(MEMORY_CACHE_ENTRIES, MEMORY_CACHE_SIZE_MB, MEMORY_CACHE_TTL, SearchPage::estimateSize);
+    private final PersistentResultStore store;
+    private final CoordinateIndex index;
+    private final SearchMetrics metrics;
+
+    /**
+     * @param repoId the id of the repository the results belong to
+     * @param index where to record the coordinates seen, null if not to
+     */
+    public MavenCentralGenericFindQuery(String repoId, SearchEndpoints endpoints, PersistentResultStore store, CoordinateIndex index, SearchMetrics metrics) {
+	this.repoId = repoId;
+	this.endpoints = endpoints;
+	this.store = store;
+	this.index = index;
+	this.metrics = metrics;
+    }
 
-    public MavenCentralGenericFindQuery(OkHttpClient client) {
-        this.client = client;
+    String getRepositoryId() {
+	return repoId;
     }
 
     @Override
     public ResultImplementation<NBVersionInfo> find(List<QueryField> fields, final List<RepositoryInfo> repos) {
-	assert repos.stream().anyMatch((RepositoryInfo r) -> Utils.isCentral(r));
-
+	//repos are dispatched by FederatedSearch, this instance searches its own repository only
 	QueryField nameField = null;
 
 	QueryField groupField = null;
@@ -77,6 +108,8 @@ import org.netbeans.modules.maven.indexer.spi.ResultImplementation;
 	QueryField versionField = null;
 
 	QueryField packagingField = null;
+
+	QueryField classesField = null;
 	for (QueryField field : fields) {
 	    if (QueryField.FIELD_NAME.equals(field.getField())) {
 		nameField = field;
@@ -93,15 +126,29 @@ import org.netbeans.modules.maven.indexer.spi.ResultImplementation;
 	    if (QueryField.FIELD_PACKAGING.equals(field.getField())) {
 		packagingField = field;
 	    }
+	    if (QueryField.FIELD_CLASSES.equals(field.getField())) {
+		classesField = field;
+	    }
+	}
+
+	if (classesField != null) {
+	    //fully qualified names go to fc, simple names to c
+	    String className = classesField.getValue();
+	    SolrQuery query = new SolrQuery()
+		    .fields(INFO_FIELDS)
+		    .phrase(className.indexOf('.') != -1 ? "fc" : "c", className); //NOI18N
+
+	    //hints fire for every unresolved symbol, keep the first response small
+	    //no source: hints for different symbols must not cancel each other
+	    return search(query, CLASSES_FIRST_PAGE_ROWS, Priority.NORMAL, null);
 	}
 
 	if (nameField != null) {
 	    //Since the search seems to be similar to this
 	    // https://repository.sonatype.org/nexus-indexer-lucene-plugin/default/docs/path__lucene_search.html group/artifact/version is ignored anyhow
-	    String mavenSearchURLText = "http://search.maven.org/solrsearch/select?rows=" + SEARCH_ROWS + "&wt=json&q=" //NOI18N
-		    + encode(nameField.getValue());
-	    final List<NBVersionInfo> results = queryCentralRepository(mavenSearchURLText);
-	    return Utils.create(results);
+	    //typed in a search field, a newer text replaces the previous one
+	    return search(new SolrQuery().fields(INFO_FIELDS).text(nameField.getValue()),
+		    FIRST_PAGE_ROWS, Priority.INTERACTIVE, "name"); //NOI18N
 	}
 
 	if (packagingField != null) {
@@ -110,48 +157,17 @@ import org.netbeans.modules.maven.indexer.spi.ResultImplementation;
 	    if (groupField != null || artifactField != null || versionField != null) {
 		Logger.getLogger(MavenCentralGenericFindQuery.class.getName()).log(Level.WARNING, "Maven packaging search will ignore group/artifact/version fields");
 	    }
-	    String mavenSearchURLText = "http://search.maven.org/solrsearch/select?rows=" + SEARCH_ROWS + "&wt=json&core=gav&q="; //NOI18N
-	    mavenSearchURLText += "p:%22"; //NOI18N
-	    mavenSearchURLText += encode(packagingField.getValue());
-	    mavenSearchURLText += "%22"; //NOI18N
-
-	    final List<NBVersionInfo> results = queryCentralRepository(mavenSearchURLText);
-	    return Utils.create(results);
+	    return search(new SolrQuery().core("gav").fields(INFO_FIELDS).phrase("p", packagingField.getValue()), //NOI18N
+		    FIRST_PAGE_ROWS, Priority.BACKGROUND, null);
 	}
 
 	if (groupField != null || artifactField != null || versionField != null) {
-	    String mavenSearchURLText = "http://search.maven.org/solrsearch/select?rows=" + SEARCH_ROWS + "&wt=json&core=gav&q="; //NOI18N
-	    boolean first = true;
-	    if (groupField != null) {
-		first = false;
-
-		mavenSearchURLText += "g:%22"; //NOI18N
-		mavenSearchURLText += encode(groupField.getValue());
-		mavenSearchURLText += "%22"; //NOI18N
-	    }
-	    if (artifactField != null) {
-		if (!first) {
-		    mavenSearchURLText += "%20AND%20"; //NOI18N
-		}
-		first = false;
+	    SolrQuery query = coordinatesQuery(
+		    groupField != null ? groupField.getValue() : null,
+		    artifactField != null ? artifactField.getValue() : null,
+		    versionField != null ? versionField.getValue() : null);
 
-		mavenSearchURLText += "a:%22"; //NOI18N
-		mavenSearchURLText += encode(artifactField.getValue());
-		mavenSearchURLText += "%22"; //NOI18N
-	    }
-	    if (versionField != null) {
-		if (!first) {
-		    mavenSearchURLText += "%20AND%20"; //NOI18N
-		}
-		first = false;
-
-		mavenSearchURLText += "v:%22"; //NOI18N
-		mavenSearchURLText += encode(versionField.getValue());
-		mavenSearchURLText += "%22"; //NOI18N
-	    }
-
-	    final List<NBVersionInfo> results = queryCentralRepository(mavenSearchURLText);
-	    return Utils.create(results);
+	    return search(query, FIRST_PAGE_ROWS, Priority.NORMAL, null);
 	}
 
 	//fallback
@@ -161,125 +177,308 @@ import org.netbeans.modules.maven.indexer.spi.ResultImplementation;
 	return Utils.emptyResult();
     }
 
-    @Messages({
-	"# {0} - URL",
-	"query.central.url=Querying Maven central: {0}",
-	"query.parsing=Querying Maven central: parsing results"
-    })
-    private List<NBVersionInfo> queryCentralRepository(String mavenSearchURLText) {
-//	System.out.println("Searching " + mavenSearchURLText);
+    /**
+     * @param groupId null if not to filter by it, same for the others
+     */
+    static SolrQuery coordinatesQuery(String groupId, String artifactId, String version) {
+	SolrQuery query = new SolrQuery().core("gav").fields(INFO_FIELDS); //NOI18N
+	if (groupId != null) {
+	    query.phrase("g", groupId); //NOI18N
+	}
+	if (artifactId != null) {
+	    query.phrase("a", artifactId); //NOI18N
+	}
+	if (version != null) {
+	    query.phrase("v", version); //NOI18N
+	} else if (artifactId != null) {
+	    //the versions of an artifact, the first page should have the newest
+	    query.sort("timestamp desc"); //NOI18N
+	}
+	return query;
+    }
 
-	ProgressHandle ph = ProgressHandle.createHandle(Bundle.query_central_url(mavenSearchURLText));
-	ph.start();
-	try {
-	    URL u = new URL(mavenSearchURLText);
+    /**
+     * The {@code limit} newest versions of an artifact, see
+     * {@link TopVersions}. Only a page of the most recently released
+     * versions is requested; as release order and version order can differ
+     * (a 5.3.x fix after 6.0.0) it is a few times larger than the limit, and
+     * the version the repository reports as latest is always included.
+     *
+     * @return the records, newest version first; empty if the search failed
+     */
+    List<NBVersionInfo> findNewestVersions(String groupId, String artifactId, int limit) {
+	TopVersions top = new TopVersions(limit);
+	int rows = (int) Math.min(NEWEST_OVERSAMPLING * (long) limit + 10, MAX_NEWEST_ROWS);
+	SearchPage recent = load(coordinatesQuery(groupId, artifactId, null).toQuery(0, rows), Priority.NORMAL, null);
+	if (recent == null) {
+	    return Collections.emptyList();
+	}
+	top.addAll(recent.getInfos());
+
+	//one document per artifact, with its latest version
+	SearchPage artifact = load(new SolrQuery()
+		.fields("g,a,latestVersion") //NOI18N
+		.phrase("g", groupId) //NOI18N
+		.phrase("a", artifactId) //NOI18N
+		.toQuery(0, 1), Priority.NORMAL, null);
+	if (artifact != null && !artifact.getInfos().isEmpty()) {
+	    String latest = artifact.getInfos().get(0).getVersion();
+	    if (latest != null && top.accepts(latest)) {
+		SearchPage records = load(coordinatesQuery(groupId, artifactId, latest).toQuery(0, FIRST_PAGE_ROWS), Priority.NORMAL, null);
+		if (records != null) {
+		    top.addAll(records.getInfos());
+		}
+	    }
+	}
+	return top.toList();
+    }
 
-            Request okRequest = new Request.Builder()
-                    .url(u)
-                    .cacheControl(new CacheControl.Builder()
-                            .maxStale(5, TimeUnit.MINUTES)
-                            .build())
-                    .build();
+    /**
+     * Puts the first page of the coordinates search {@link #find} would send
+     * into the caches, fetching it at background priority if needed.
+     *
+     * @return the page if it was fetched, null if it was cached or the
+     * search failed
+     */
+    SearchPage prefetch(String groupId, String artifactId, String version) {
+	String pageURLText = coordinatesQuery(groupId, artifactId, version).toQuery(0, FIRST_PAGE_ROWS);
+	if (cache.get(pageURLText) != null) {
+	    return null;
+	}
+	PersistentResultStore.Stored stored = store.get(storeKey(pageURLText));
+	if (stored != null && stored.getAge() <= MAX_STALENESS) {
+	    cache.put(pageURLText, stored.getPage());
+	    return null;
+	}
+	return fetch(pageURLText, Priority.BACKGROUND, null);
+    }
 
-            Response okResponse = client.newCall(okRequest).execute();
+    /**
+     * @see SearchEndpoints#isHealthy
+     */
+    boolean isHealthy(long maxLatency) {
+	return endpoints.isHealthy(maxLatency);
+    }
 
-	    try (InputStream in = okResponse.body().byteStream()) {
-		ph.progress(Bundle.query_parsing());
-		Object parse = JSONValue.parse(new BufferedReader(new InputStreamReader(in)));
-		if (!(parse instanceof JSONObject)) {
-		    return Collections.EMPTY_LIST;
-		}
-		JSONObject searchJSON = (JSONObject) parse;
-		Object responseObj = searchJSON.get("response"); //NOI18N
-		if (!(responseObj instanceof JSONObject)) {
-		    return Collections.EMPTY_LIST;
-		}
-		JSONObject response = (JSONObject) responseObj;
-		Object docsObj = response.get("docs"); //NOI18N
-		if (!(docsObj instanceof JSONArray)) {
-		    return Collections.EMPTY_LIST;
-		}
-		JSONArray docs = (JSONArray) docsObj;
+    /**
+     * Plugin artifacts whose groupId starts with {@code prefix}. Only the
+     * groupId and artifactId of each artifact are requested.
+     */
+    ResultImplementation<NBVersionInfo> findPluginsByGroupPrefix(String prefix) {
+	return search(new SolrQuery()
+		.fields("g,a") //NOI18N
+		.phrase("p", "maven-plugin") //NOI18N
+		.prefix("g", prefix), //NOI18N
+		COORDINATES_FIRST_PAGE_ROWS, Priority.INTERACTIVE, "plugin-groups"); //NOI18N
+    }
 
-		List<NBVersionInfo> infos = new ArrayList<>();
-		for (int i = 0; i < docs.size(); i++) {
-		    Object docObj = docs.get(i);
-		    JSONObject doc = (JSONObject) docObj;
+    /**
+     * Plugin artifacts of {@code groupId} whose artifactId starts with
+     * {@code prefix}. Only the groupId and artifactId of each artifact are
+     * requested.
+     */
+    ResultImplementation<NBVersionInfo> findPluginsByArtifactPrefix(String groupId, String prefix) {
+	return search(new SolrQuery()
+		.fields("g,a") //NOI18N
+		.phrase("p", "maven-plugin") //NOI18N
+		.phrase("g", groupId) //NOI18N
+		.prefix("a", prefix), //NOI18N
+		COORDINATES_FIRST_PAGE_ROWS, Priority.INTERACTIVE, "plugin-artifacts:" + groupId); //NOI18N
+    }
 
-		    infos.addAll(jsonToInfo(doc));
-		}
+    /**
+     * One entry per artifact of {@code groupId}. Only the groupId and
+     * artifactId are requested.
+     */
+    ResultImplementation<NBVersionInfo> findArtifacts(String groupId) {
+	return search(new SolrQuery()
+		.fields("g,a") //NOI18N
+		.phrase("g", groupId), //NOI18N
+		COORDINATES_FIRST_PAGE_ROWS, Priority.NORMAL, null);
+    }
 
-		return infos;
-	    }
-	} catch (MalformedURLException ex) {
-	    Logger.getLogger(MavenCentralGenericFindQuery.class.getName()).log(Level.SEVERE, null, ex);
-	} catch (IOException ex) {
-	    Logger.getLogger(MavenCentralGenericFindQuery.class.getName()).log(Level.SEVERE, null, ex);
-	} finally {
-	    ph.finish();
-	}
-	return Collections.EMPTY_LIST;
+    /**
+     * Every version of the artifacts with {@code packaging}. Only the
+     * groupId, artifactId and version are requested.
+     */
+    ResultImplementation<NBVersionInfo> findVersionsByPackaging(String packaging) {
+	return search(new SolrQuery()
+		.core("gav") //NOI18N
+		.fields("g,a,v") //NOI18N
+		.phrase("p", packaging), //NOI18N
+		COORDINATES_FIRST_PAGE_ROWS, Priority.BACKGROUND, null);
     }
 
-    private static List<NBVersionInfo> jsonToInfo(JSONObject doc) {
-	List<NBVersionInfo> infos = new ArrayList<>();
+    /**
+     * @param source see {@link SingleFlight#execute}, only applies to the
+     * first page: the other pages of the same search must not supersede each
+     * other
+     */
+    private ResultImplementation<NBVersionInfo> search(final SolrQuery query, int firstRows, final Priority priority, final String source) {
+	//SolrQuery strings are canonical and independent of the endpoint, use them as cache keys as they are
+	return PagedResult.create((int start, int rows) -> load(query.toQuery(start, rows), priority, start == 0 ? source : null), firstRows);
+    }
 
-	String groupId = String.valueOf(doc.get("g")); //NOI18N
-	String artifactId = String.valueOf(doc.get("a")); //NOI18N
-	Object v = doc.get("latestVersion"); //NOI18N
-	if (v == null) {
-	    v = doc.get("v"); //NOI18N
+    /**
+     * Loads a page from the memory cache, the store or the server, in this
+     * order; concurrent requests for the same page share one call.
+     *
+     * @param pageURLText see {@link SolrQuery#toQuery}
+     * @param source see {@link SingleFlight#execute}
+     * @return the page or null if the query failed
+     */
+    SearchPage load(final String pageURLText, Priority priority, String source) {
+	SearchPage cached = cache.get(pageURLText);
+	if (cached != null) {
+	    metrics.memoryHit();
+	    return cached;
 	}
-	String version = String.valueOf(v);
-	String packaging = String.valueOf(doc.get("p")); //NOI18N
-
-	//"ec":["-sources.jar","-javadoc.jar",".jar",".pom"]
-	Pattern p = Pattern.compile("^(-([^\\.]+))*\\.(.*)$"); //NOI18N
-	Object ecObj = doc.get("ec"); //NOI18N
-	if (ecObj instanceof JSONArray) {
-	    JSONArray ec = (JSONArray) ecObj;
-	    for (Object o : ec) {
-		String s = String.valueOf(o);
-
-		Matcher matcher = p.matcher(s);
-		if (matcher.matches()) {
-		    String classifier = matcher.group(2);
-		    String extension = matcher.group(3);
-
-		    if ("javadoc".equals(classifier) || "sources".equals(classifier)) { //NOI18N
-			continue;
-		    }
 
-		    infos.add(new NBVersionInfo(
-			    "central", //NOI18N
-			    groupId, artifactId, version,
-			    extension,
-			    packaging,
-			    String.valueOf(doc.get("id")), null, classifier)); //NOI18N
-		}
+	PersistentResultStore.Stored stored = store.get(storeKey(pageURLText));
+	if (stored != null && (stored.getAge() <= MAX_STALENESS || endpoints.isDown())) {
+	    metrics.storeHit();
+	    cache.put(pageURLText, stored.getPage());
+	    if (stored.getAge() > MEMORY_CACHE_TTL) {
+		//serve the stale page now, refresh in the background
+		REFRESH_RP.post(() -> fetch(pageURLText, Priority.BACKGROUND, null));
 	    }
+	    return stored.getPage();
+	}
+
+	SearchPage fetched = fetch(pageURLText, priority, source);
+	if (fetched == null && stored != null) {
+	    //better an old answer than none while the repository is unreachable
+	    metrics.storeHit();
+	    return stored.getPage();
 	}
+	return fetched;
+    }
+
+    private SearchPage fetch(final String pageURLText, Priority priority, String source) {
+	return inFlight.execute(pageURLText, priority, source, (SingleFlight.Flight flight) -> {
+	    SearchPage page = queryCentralRepository(pageURLText, flight);
+	    if (page != null) {
+		cache.put(pageURLText, page);
+		store.put(storeKey(pageURLText), page);
+		if (index != null) {
+		    index.learn(page.getInfos());
+		}
+	    }
+	    return page;
+	});
+    }
+
+    /**
+     * The store is shared by all repositories and the decoded results carry
+     * the repository id. Central keeps plain keys.
+     */
+    private String storeKey(String query) {
+	return "central".equals(repoId) ? query : repoId + '|' + query; //NOI18N
+    }
 
-	if (infos.isEmpty()) {
-	    infos.add(new NBVersionInfo(
-		    "central", //NOI18N
-		    groupId, artifactId, version,
-		    //guesswork
-		    "jar", //NOI18N
-		    packaging,
-		    String.valueOf(doc.get("id")), null, null)); //NOI18N
+    @Messages({
+	"# {0} - Solr query",
+	"query.central.url=Querying Maven central: {0}",
+	"query.parsing=Querying Maven central: parsing results"
+    })
+    private SearchPage queryCentralRepository(String solrQuery, SingleFlight.Flight flight) {
+	final List<NBVersionInfo> infos = new ArrayList<>();
+	final int[] docCount = new int[1];
+	final VersionInfoDecoder decoder = new VersionInfoDecoder(repoId);
+	SearchMetrics.Sample sample = metrics.start(solrQuery);
+	long numFound = queryCentralRepository(solrQuery, flight, sample, (SolrDoc doc) -> {
+	    docCount[0]++;
+	    decoder.decode(doc, infos);
+	});
+	if (numFound < 0) {
+	    return null;
 	}
+	return new SearchPage(Math.max(numFound, docCount[0]), docCount[0], infos, sample.getBytesRead());
+    }
 
-	return infos;
+    /**
+     * Runs a search without going through the caches, passing each document
+     * of the response to {@code handler}.
+     *
+     * @return the number of documents matching the query or -1 on failure
+     */
+    long queryCentralRepository(String solrQuery, SolrResponseParser.DocHandler handler) {
+	return queryCentralRepository(solrQuery, null, metrics.start(solrQuery), handler);
     }
 
-    private static String encode(String s) {
+    private long queryCentralRepository(String solrQuery, SingleFlight.Flight flight, SearchMetrics.Sample sample, SolrResponseParser.DocHandler handler) {
+//	System.out.println("Searching " + solrQuery);
+
+	long numFound = -1;
+	ProgressHandle ph = ProgressHandle.createHandle(Bundle.query_central_url(solrQuery));
+	ph.start();
 	try {
-	    return URLEncoder.encode(s, "UTF-8"); //NOI18N
-	} catch (UnsupportedEncodingException ex) {
-	    //UTF-8 should always(?) be a supported encoding
+	    List<SearchEndpoints.Endpoint> candidates = endpoints.candidates();
+	    if (candidates.isEmpty()) {
+		Logger.getLogger(MavenCentralGenericFindQuery.class.getName()).log(Level.WARNING, "No search endpoint for {0}", repoId); //NOI18N
+		return -1;
+	    }
+	    Response okResponse = null;
+	    IOException failure = null;
+	    for (SearchEndpoints.Endpoint endpoint : candidates) {
+		try {
+		    URL u = new URL(endpoint.url(solrQuery));
+
+		    //no Accept-Encoding header: OkHttp then asks for gzip itself and
+		    //inflates transparently, SearchMetrics checks the server complied
+		    Request okRequest = new Request.Builder()
+			    .url(u)
+			    .cacheControl(new CacheControl.Builder()
+				    .maxStale(5, TimeUnit.MINUTES)
+				    .build())
+			    .tag(sample)
+			    .build();
+
+		    okResponse = endpoint.getExecutor().execute(okRequest, flight);
+		    break;
+		} catch (IOException ex) {
+		    if ((flight != null && flight.isCancelled()) || Thread.currentThread().isInterrupted()) {
+			throw ex;
+		    }
+		    Logger.getLogger(MavenCentralGenericFindQuery.class.getName()).log(Level.FINE, "Search on " + endpoint.getURL() + " failed, trying the next endpoint", ex); //NOI18N
+		    failure = ex;
+		}
+	    }
+	    if (okResponse == null) {
+		//every candidate failed
+		throw failure;
+	    }
+	    sample.responded(okResponse);
+	    if (!okResponse.isSuccessful()) {
+		//eg. 504 when the endpoint is down and nothing is cached
+		Logger.getLogger(MavenCentralGenericFindQuery.class.getName()).log(Level.FINE, "{0} for {1}", new Object[]{okResponse.code(), okResponse.request().url()}); //NOI18N
+		okResponse.close();
+		return -1;
+	    }
+
+	    try (InputStream in = okResponse.body().byteStream()) {
+		ph.progress(Bundle.query_parsing());
+		SolrResponseParser parser = new SolrResponseParser((SolrDoc doc) -> {
+		    sample.doc();
+		    handler.doc(doc);
+		});
+		new JSONParser().parse(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)), parser);
+
+		numFound = Math.max(parser.getNumFound(), 0);
+		return numFound;
+	    }
+	} catch (ParseException ex) {
+	    Logger.getLogger(MavenCentralGenericFindQuery.class.getName()).log(Level.WARNING, "Cannot parse Maven central response for " + solrQuery, ex); //NOI18N
+	} catch (MalformedURLException ex) {
 	    Logger.getLogger(MavenCentralGenericFindQuery.class.getName()).log(Level.SEVERE, null, ex);
-	    return ""; //NOI18N
+	} catch (IOException ex) {
+	    //nobody waits for the result anymore, eg. a newer text was typed
+	    boolean cancelled = (flight != null && flight.isCancelled()) || Thread.currentThread().isInterrupted();
+	    Logger.getLogger(MavenCentralGenericFindQuery.class.getName()).log(cancelled ? Level.FINE : Level.SEVERE, null, ex);
+	} finally {
+	    ph.finish();
+	    sample.finish(numFound >= 0);
 	}
+	return -1;
     }
 }
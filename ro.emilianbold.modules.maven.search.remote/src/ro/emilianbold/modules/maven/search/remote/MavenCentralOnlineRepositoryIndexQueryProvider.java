@@ -30,9 +30,13 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import okhttp3.Cache;
 import okhttp3.OkHttpClient;
@@ -51,6 +55,7 @@ import org.netbeans.modules.maven.indexer.spi.RepositoryIndexQueryProvider;
 import org.netbeans.modules.maven.indexer.spi.ResultImplementation;
 import org.openide.modules.Places;
 import org.openide.util.Exceptions;
+import org.openide.util.RequestProcessor;
 import org.openide.util.lookup.ServiceProvider;
 
 @ServiceProvider(service = RepositoryIndexQueryProvider.class, position = 100)
@@ -59,38 +64,155 @@ public class MavenCentralOnlineRepositoryIndexQueryProvider implements Repositor
     private final static int CONNECTION_TIMEOUT = Integer.getInteger("maven.search.remote.timeout.connect", 10) * 1000; //NOI18N
     private final static int READ_TIMEOUT = Integer.getInteger("maven.search.remote.timeout.read", 10) * 1000; //NOI18N
     private final static int CACHE_SIZE_MB = Integer.getInteger("maven.search.remote.cache.size", 10) * 1024 * 1024;  //NOI18N
+    private final static int STORE_SIZE_MB = Integer.getInteger("maven.search.remote.store.size", 20) * 1024 * 1024;  //NOI18N
+
+    private final static boolean INDEX_ENABLED = !Boolean.getBoolean("maven.search.remote.index.disabled"); //NOI18N
+    private final static String INDEX_IMPORT = System.getProperty("maven.search.remote.index.import"); //NOI18N
+    //groupIds or artifactIds listed from the index at most
+    private final static int INDEX_RESULTS = Integer.getInteger("maven.search.remote.index.results", 1000); //NOI18N
+
+    private final static String BIG = "1.Central-is-BIG-apply-a-filter"; //NOI18N
+
+    private final static boolean PRECONNECT = !Boolean.getBoolean("maven.search.remote.preconnect.disabled"); //NOI18N
+
+    private final static RequestProcessor RP = new RequestProcessor(MavenCentralOnlineRepositoryIndexQueryProvider.class.getName());
+
+    /**
+     * Everything with a cost: the HTTP client and its cache, the stores on
+     * disk and the queries. The provider is looked up on whatever thread
+     * needs it, often while a project opens, so this is created in the
+     * background or at the latest by the first query.
+     */
+    private final class Services {
+
+	private final OkHttpClient client;
+	private final CoordinateIndex index;
+	private final PersistentResultStore store;
+	private final SearchMetrics metrics;
+	private final SearchEndpoints centralEndpoints;
+	//by search URLs, shared by the repository ids pointing to them
+	private final Map<List<String>, SearchEndpoints> endpoints = new ConcurrentHashMap<>();
+	private final MavenCentralGenericFindQuery findQuery;
+	//by endpoints, repositories searched through the same ones share a search,
+	//its caches and its requests; FederatedSearch relabels the results
+	private final Map<SearchEndpoints, MavenCentralGenericFindQuery> findQueries = new ConcurrentHashMap<>();
+	private final FederatedSearch federatedSearch;
+	private final MavenCentralBatchQueries batchQueries;
+	private final Prefetcher prefetcher;
+	private final MavenCentralChecksumQueries checksumQueries;
+	private final MavenCentralArchetypeQueries archetypeQueries;
+	private final MavenCentralDependencyInfoQueries dependencyInfoQueries;
+
+	Services() {
+	    File cacheFolder = Places.getCacheSubdirectory("maven.search.remote/okhttpcache"); //NOI18N
+	    Cache cache = new Cache(cacheFolder, CACHE_SIZE_MB);
+	    //kept across restarts, the archetype catalog and search pages are
+	    //revalidated with their ETag/Last-Modified instead of downloaded again
+	    //opened in the background: it reads the whole journal
+	    RP.post(() -> {
+		try {
+		    cache.initialize();
+		} catch (IOException ex) {
+		    Exceptions.printStackTrace(ex);
+		}
+	    });
+
+	    metrics = new SearchMetrics();
+	    metrics.register();
+
+	    client = new OkHttpClient.Builder()
+		    .connectTimeout(CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS)
+		    .readTimeout(READ_TIMEOUT, TimeUnit.MILLISECONDS)
+		    .cache(cache)
+		    .eventListenerFactory(SearchMetrics.FACTORY)
+		    .build();
+	    //searches run asynchronously, leave room for hedged calls
+	    client.dispatcher().setMaxRequestsPerHost(Math.max(client.dispatcher().getMaxRequestsPerHost(), 2 * MavenCentralGenericFindQuery.MAX_REQUESTS));
+
+	    File cacheRoot = Places.getCacheSubdirectory("maven.search.remote"); //NOI18N
+	    index = INDEX_ENABLED ? new CoordinateIndex(cacheRoot) : null;
+	    store = new PersistentResultStore(new File(cacheRoot, "results.dat"), STORE_SIZE_MB); //NOI18N
+	    centralEndpoints = SearchEndpoints.central(client, metrics);
+	    findQuery = new MavenCentralGenericFindQuery("central", centralEndpoints, store, index, metrics); //NOI18N
+	    findQueries.put(centralEndpoints, findQuery);
+	    federatedSearch = new FederatedSearch(this::findQuery);
+	    batchQueries = new MavenCentralBatchQueries(this::findQuery);
+	    prefetcher = new Prefetcher(this::findQuery);
+	    checksumQueries = new MavenCentralChecksumQueries(findQuery, store);
+	    archetypeQueries = new MavenCentralArchetypeQueries(client, store);
+	    dependencyInfoQueries = new MavenCentralDependencyInfoQueries(client, findQuery);
+
+	    if (index != null && INDEX_IMPORT != null) {
+		File dump = new File(INDEX_IMPORT);
+		RP.post(() -> {
+		    if (dump.isFile() && dump.lastModified() > index.lastModified()) {
+			try {
+			    index.importDump(dump);
+			} catch (IOException ex) {
+			    Exceptions.printStackTrace(ex);
+			}
+		    }
+		});
+	    }
+	}
+
+	/**
+         * @return the search of {@code r}, null if it is not handled
+         */
+	private MavenCentralGenericFindQuery findQuery(RepositoryInfo r) {
+	    if (Utils.isCentral(r)) {
+		//also its mirrors
+		return findQuery;
+	    }
+	    List<String> urls = repositories.find(r);
+	    if (urls == null) {
+		return null;
+	    }
+	    SearchEndpoints e = endpoints.computeIfAbsent(urls, (List<String> u) -> new SearchEndpoints(u, client, metrics));
+	    return findQueries.computeIfAbsent(e, (SearchEndpoints k) -> new MavenCentralGenericFindQuery(r.getId(), k, store, null, metrics));
+	}
+    }
 
-    private final OkHttpClient client;
+    //only system properties, cheap enough for the constructor
+    private final RemoteRepositories repositories = RemoteRepositories.configured();
+    private volatile Services services;
 
     public MavenCentralOnlineRepositoryIndexQueryProvider() {
-        File cacheFolder = Places.getCacheSubdirectory("maven.search.remote/okhttpcache"); //NOI18N
-        Cache cache = new Cache(cacheFolder, CACHE_SIZE_MB);
-        //reset cache on start
-        try {
-            cache.evictAll();
-        } catch (IOException ex) {
-            Exceptions.printStackTrace(ex);
-        }
-
-        client = new OkHttpClient.Builder()
-                .connectTimeout(CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS)
-                .readTimeout(READ_TIMEOUT, TimeUnit.MILLISECONDS)
-                .cache(cache)
-                .build();
+	RP.post(() -> {
+	    Services s = services();
+	    if (PRECONNECT) {
+		//a search usually follows the lookup, have a connection ready
+		s.centralEndpoints.preconnect();
+	    }
+	});
+    }
+
+    private Services services() {
+	Services s = services;
+	if (s == null) {
+	    synchronized (this) {
+		s = services;
+		if (s == null) {
+		    services = s = new Services();
+		}
+	    }
+	}
+	return s;
     }
 
     @Override
     public boolean handlesRepository(RepositoryInfo r) {
-	return Utils.isCentral(r);
+	return Utils.isCentral(r) || repositories.find(r) != null;
     }
 
     @Override
     public GenericFindQuery getGenericFindQuery() {
-	return new MavenCentralGenericFindQuery(client);
+	return services().federatedSearch;
     }
 
     @Override
     public BaseQueries getBaseQueries() {
+	Services services = services();
 	return new BaseQueries() {
 	    @Override
 	    public ResultImplementation<NBVersionInfo> getRecords(String groupId, String artifactId, String version, List<RepositoryInfo> repos) {
@@ -121,12 +243,20 @@ public class MavenCentralOnlineRepositoryIndexQueryProvider implements Repositor
 
 	    @Override
 	    public ResultImplementation<NBVersionInfo> getVersions(String groupId, String artifactId, List<RepositoryInfo> repos) {
-		return getRecords(groupId, artifactId, null, repos);
+		//newest first, the server already sends the most recent releases first
+		ResultImplementation<NBVersionInfo> versions = Utils.transform(getRecords(groupId, artifactId, null, repos), Utils::newestFirst);
+		if (groupId != null && !groupId.isEmpty() && artifactId != null && !artifactId.isEmpty()) {
+		    //a version is picked next
+		    services.prefetcher.artifactChosen(groupId, artifactId, versions, repos);
+		}
+		return versions;
 	    }
 
 	    @Override
 	    public ResultImplementation<String> getGroups(List<RepositoryInfo> repos) {
 		return new ResultImplementation<String>() {
+		    private List<String> indexed;
+
 		    @Override
 		    public boolean isPartial() {
 			return true;
@@ -138,8 +268,19 @@ public class MavenCentralOnlineRepositoryIndexQueryProvider implements Repositor
 		    }
 
 		    @Override
-		    public List<String> getResults() {
-			return Arrays.asList("1.Central-is-BIG-apply-a-filter",
+		    public synchronized List<String> getResults() {
+			if (indexed == null && services.index != null && !services.index.isEmpty()) {
+			    //whatever was seen so far, Central has many more
+			    indexed = services.index.getGroups("", INDEX_RESULTS + 1); //NOI18N
+			    if (indexed.size() > INDEX_RESULTS) {
+				indexed = new ArrayList<>(indexed.subList(0, INDEX_RESULTS));
+				indexed.add(0, BIG);
+			    }
+			}
+			if (indexed != null) {
+			    return indexed;
+			}
+			return Arrays.asList(BIG,
 				//top 10 groups, from http://search.maven.org/#stats , May 1st 2016
 				"commons-collections",
 				"commons-lang",
@@ -168,67 +309,119 @@ public class MavenCentralOnlineRepositoryIndexQueryProvider implements Repositor
 
 	    @Override
 	    public ResultImplementation<String> getArtifacts(String groupId, List<RepositoryInfo> repos) {
-		ResultImplementation<NBVersionInfo> records = getRecords(groupId, null, null, repos);
-
-		List<String> artifacts = records.getResults()
-			.stream()
-			.map((NBVersionInfo info) -> info.getArtifactId())
-			.distinct()
-			.collect(Collectors.toList());
+		if (groupId == null || groupId.isEmpty()) {
+		    return Utils.emptyString();
+		}
+		ResultImplementation<NBVersionInfo> records = services.federatedSearch.search(repos, (MavenCentralGenericFindQuery q) -> q.findArtifacts(groupId));
+		//an artifact is picked next
+		services.prefetcher.groupChosen(groupId, records, repos);
 
-		return Utils.create(artifacts);
+		ResultImplementation<String> artifactIds = Utils.transform(records, (List<NBVersionInfo> infos) -> Utils.distinct(infos, NBVersionInfo::getArtifactId, s -> true));
+		return orIndexed(artifactIds, (CoordinateIndex index) -> index.getArtifacts(groupId, "", INDEX_RESULTS)); //NOI18N
 	    }
 
 	    @Override
 	    public ResultImplementation<String> filterPluginGroupIds(String prefix, List<RepositoryInfo> repos) {
-		//TODO: it would be better to to a filtered search directly
-		ResultImplementation<String> groups = getGroups(repos);
-		List<String> filtered = groups.getResults()
-			.stream()
-			.filter(s -> s.startsWith(prefix))
-			.distinct()
-			.collect(Collectors.toList());
-		return Utils.create(filtered);
+		ResultImplementation<NBVersionInfo> plugins = services.federatedSearch.search(repos, (MavenCentralGenericFindQuery q) -> q.findPluginsByGroupPrefix(prefix));
+		return Utils.transform(plugins, (List<NBVersionInfo> infos) -> Utils.distinct(infos, NBVersionInfo::getGroupId, s -> s.startsWith(prefix)));
 	    }
 
 	    @Override
 	    public ResultImplementation<String> filterPluginArtifactIds(String groupId, String prefix, List<RepositoryInfo> repos) {
-		//TODO: it would be better to to a filtered search directly
-		ResultImplementation<String> artifacts = getArtifacts(groupId, repos);
-		List<String> filtered = artifacts.getResults()
+		ResultImplementation<NBVersionInfo> plugins = services.federatedSearch.search(repos, (MavenCentralGenericFindQuery q) -> q.findPluginsByArtifactPrefix(groupId, prefix));
+		ResultImplementation<String> artifactIds = Utils.transform(plugins, (List<NBVersionInfo> infos) -> Utils.distinct(infos, NBVersionInfo::getArtifactId, s -> s.startsWith(prefix)));
+		//the index has no packaging, go by the plugin naming convention
+		return orIndexed(artifactIds, (CoordinateIndex index) -> index.getArtifacts(groupId, prefix, INDEX_RESULTS)
 			.stream()
-			.filter(s -> s.startsWith(prefix))
-			.collect(Collectors.toList());
-		return Utils.create(filtered);
+			.filter(s -> s.endsWith("-plugin")) //NOI18N
+			.collect(Collectors.toList()));
+	    }
+
+	    /**
+             * @return {@code online}, or what {@code lookup} finds in the
+             * coordinate index when the search found nothing, eg. offline
+             */
+	    private ResultImplementation<String> orIndexed(ResultImplementation<String> online, Function<CoordinateIndex, List<String>> lookup) {
+		CoordinateIndex index = services.index;
+		if (index == null) {
+		    return online;
+		}
+		return Utils.transform(online, (List<String> found) -> found.isEmpty() ? lookup.apply(index) : found);
 	    }
 
 	    @Override
 	    public ResultImplementation<String> getGAVsForPackaging(String packaging, List<RepositoryInfo> repos) {
-		QueryField qf = new QueryField();
-		qf.setField(QueryField.FIELD_PACKAGING);
-		qf.setValue(packaging);
-
-		ResultImplementation<NBVersionInfo> results = getGenericFindQuery().find(Collections.singletonList(qf), repos);
+		ResultImplementation<NBVersionInfo> results = services.federatedSearch.search(repos, (MavenCentralGenericFindQuery q) -> q.findVersionsByPackaging(packaging));
 
-		List<String> gavs = results.getResults()
-			.stream()
-			.map((NBVersionInfo info) -> info.getGroupId() + ":" + info.getArtifactId() + ":" + info.getVersion()) //NOI18N
-			.distinct()
-			.collect(Collectors.toList());
-
-		return Utils.create(gavs);
+		return Utils.transform(results, (List<NBVersionInfo> infos) -> Utils.distinct(infos,
+			(NBVersionInfo info) -> info.getGroupId() + ":" + info.getArtifactId() + ":" + info.getVersion(), //NOI18N
+			s -> true));
 	    }
 	};
     }
 
+    /**
+     * The newest versions of an artifact, newest first in Maven version
+     * order. Unlike {@link BaseQueries#getVersions} only about {@code limit}
+     * versions are transferred and kept, and the latest release is always
+     * among them.
+     *
+     * @param limit the number of distinct versions, 1 for the newest only,
+     * 0 for all of them
+     * @param repos the repositories to search, in resolution order
+     * @see ro.emilianbold.modules.maven.search.remote.api.RemoteSearch#getNewestVersions
+     */
+    public ResultImplementation<NBVersionInfo> getNewestVersions(String groupId, String artifactId, int limit, List<RepositoryInfo> repos) {
+	if (limit <= 0) {
+	    return getBaseQueries().getVersions(groupId, artifactId, repos);
+	}
+	if (groupId == null || groupId.isEmpty() || artifactId == null || artifactId.isEmpty()) {
+	    return Utils.emptyResult();
+	}
+	ResultImplementation<NBVersionInfo> found = services().federatedSearch.search(repos, (MavenCentralGenericFindQuery q) -> Utils.create(q.findNewestVersions(groupId, artifactId, limit)));
+	//the newest of each repository, keep the newest of all
+	return Utils.transform(found, (List<NBVersionInfo> infos) -> {
+	    TopVersions top = new TopVersions(limit);
+	    top.addAll(infos);
+	    return top.toList();
+	});
+    }
+
+    /**
+     * Every version of many artifacts with a few requests instead of one
+     * {@link BaseQueries#getVersions} each, eg. to look for updates of all
+     * the dependencies of a project.
+     *
+     * @param groupArtifactIds {@code groupId:artifactId} pairs
+     * @param repos the repositories to search, in resolution order
+     * @return the versions by {@code groupId:artifactId}, in the given order;
+     * pairs whose lookup failed are missing
+     * @see ro.emilianbold.modules.maven.search.remote.api.RemoteSearch#getVersions
+     */
+    public Map<String, List<NBVersionInfo>> getVersions(Collection<String> groupArtifactIds, List<RepositoryInfo> repos) {
+	return services().batchQueries.getVersions(groupArtifactIds, repos);
+    }
+
+    /**
+     * Identifies many files at once by their SHA-1 on Central, with a few
+     * requests instead of one {@link ChecksumQueries#findBySHA1} each.
+     *
+     * @return the matching artifacts of each file, in the given order, empty
+     * if unknown; files that could not be read are missing
+     * @see ro.emilianbold.modules.maven.search.remote.api.RemoteSearch#findByFiles
+     */
+    public Map<File, List<NBVersionInfo>> findByFiles(Collection<File> files) {
+	return services().checksumQueries.findByFiles(files);
+    }
+
     @Override
     public ArchetypeQueries getArchetypeQueries() {
-	return null;
+	return services().archetypeQueries;
     }
 
     @Override
     public ChecksumQueries getChecksumQueries() {
-	return null;
+	return services().checksumQueries;
     }
 
     @Override
@@ -238,7 +431,16 @@ public class MavenCentralOnlineRepositoryIndexQueryProvider implements Repositor
 
     @Override
     public ClassesQuery getClassesQuery() {
-	return null;
+	return new ClassesQuery() {
+	    @Override
+	    public ResultImplementation<NBVersionInfo> findVersionsByClass(String className, List<RepositoryInfo> repos) {
+		QueryField qf = new QueryField();
+		qf.setField(QueryField.FIELD_CLASSES);
+		qf.setValue(className);
+
+		return getGenericFindQuery().find(Collections.singletonList(qf), repos);
+	    }
+	};
     }
 
     @Override
@@ -248,7 +450,7 @@ public class MavenCentralOnlineRepositoryIndexQueryProvider implements Repositor
 
     @Override
     public DependencyInfoQueries getDependencyInfoQueries() {
-	return null;
+	return services().dependencyInfoQueries;
     }
 
 }
@@ -0,0 +1,336 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Orders version strings the way Maven does, a port of its
+ * {@code ComparableVersion}. A version is a list of numbers and qualifiers
+ * separated by {@code .}, while a {@code -} or a switch between digits and
+ * letters starts a sublist, as does a qualifier after a {@code .}. Numbers
+ * compare numerically, then
+ * {@code alpha < beta < milestone < rc < snapshot < release < sp}, other
+ * qualifiers after those alphabetically. Trailing zeros and release
+ * qualifiers of each sublist do not count, so {@code 1.0}, {@code 1},
+ * {@code 1.0.0-GA} are equal and so are {@code 1.0-rc1} and {@code 1-rc1}.
+ * Null sorts first.
+ *
+ * Each comparison parses both strings; to sort many versions or compare one
+ * against many, parse each once into a {@link Version}.
+ */
+/* package protected */ final class MavenVersionComparator implements Comparator<String> {
+
+    static final MavenVersionComparator INSTANCE = new MavenVersionComparator();
+
+    private static final String[] QUALIFIERS = {"alpha", "beta", "milestone", "rc", "snapshot", "", "sp"}; //NOI18N
+    private static final String RELEASE = "5"; //NOI18N
+
+    private MavenVersionComparator() {
+    }
+
+    @Override
+    public int compare(String v1, String v2) {
+	return new Version(v1).compareTo(new Version(v2));
+    }
+
+    /**
+     * A version string parsed once, ordered like
+     * {@link MavenVersionComparator}.
+     */
+    static final class Version implements Comparable<Version> {
+
+	private final String version;
+	//null for a null version
+	private final ListItem items;
+
+	Version(String version) {
+	    this.version = version;
+	    this.items = version != null ? parse(version) : null;
+	}
+
+	String getVersion() {
+	    return version;
+	}
+
+	@Override
+	public int compareTo(Version other) {
+	    if (items == null || other.items == null) {
+		return items == null ? (other.items == null ? 0 : -1) : 1;
+	    }
+	    return items.compareTo(other.items);
+	}
+
+	@Override
+	public String toString() {
+	    return version;
+	}
+    }
+
+    private static ListItem parse(String version) {
+	String v = version.toLowerCase(Locale.ENGLISH);
+	ListItem items = new ListItem();
+	ListItem list = items;
+	Deque<ListItem> lists = new ArrayDeque<>();
+	lists.push(list);
+
+	boolean digit = false;
+	int start = 0;
+	for (int i = 0; i < v.length(); i++) {
+	    char c = v.charAt(i);
+	    if (c == '.' || c == '-') {
+		list.add(i == start ? IntItem.ZERO : item(digit, v.substring(start, i)));
+		start = i + 1;
+		if (c == '-') {
+		    list.add(list = new ListItem());
+		    lists.push(list);
+		}
+	    } else if (Character.isDigit(c)) {
+		if (!digit && i > start) {
+		    //1.0.0.X1 is 1.0.0-X1
+		    list = sublist(list, lists);
+		    //"a1" is alpha 1 but "a" alone is just a qualifier
+		    list.add(new StringItem(v.substring(start, i), true));
+		    start = i;
+		    list.add(list = new ListItem());
+		    lists.push(list);
+		}
+		digit = true;
+	    } else {
+		if (digit && i > start) {
+		    list.add(item(true, v.substring(start, i)));
+		    start = i;
+		    list.add(list = new ListItem());
+		    lists.push(list);
+		}
+		digit = false;
+	    }
+	}
+	if (v.length() > start) {
+	    if (!digit) {
+		//2.0.X is 2-X
+		list = sublist(list, lists);
+	    }
+	    list.add(item(digit, v.substring(start)));
+	}
+	//innermost first, an emptied sublist is dropped by its parent
+	while (!lists.isEmpty()) {
+	    lists.pop().normalize();
+	}
+	return items;
+    }
+
+    /**
+     * @return a new sublist of {@code list} for a qualifier after a
+     * {@code .}, {@code list} itself if it is still empty
+     */
+    private static ListItem sublist(ListItem list, Deque<ListItem> lists) {
+	if (list.isEmpty()) {
+	    return list;
+	}
+	ListItem sublist = new ListItem();
+	list.add(sublist);
+	lists.push(sublist);
+	return sublist;
+    }
+
+    private static Item item(boolean digit, String token) {
+	return digit ? new IntItem(token) : new StringItem(token, false);
+    }
+
+    private interface Item {
+
+	/**
+         * @param other null when the other version has no more items
+         */
+	int compareTo(Item other);
+
+	boolean isNull();
+    }
+
+    private static final class IntItem implements Item {
+
+	static final IntItem ZERO = new IntItem("0"); //NOI18N
+
+	private final BigInteger value;
+
+	IntItem(String token) {
+	    this.value = new BigInteger(token);
+	}
+
+	@Override
+	public boolean isNull() {
+	    return value.signum() == 0;
+	}
+
+	@Override
+	public int compareTo(Item other) {
+	    if (other == null) {
+		//1.0 == 1, 1.1 > 1
+		return isNull() ? 0 : 1;
+	    }
+	    if (other instanceof IntItem) {
+		return value.compareTo(((IntItem) other).value);
+	    }
+	    //1.1 > 1-sp, 1.1 > 1-1
+	    return 1;
+	}
+    }
+
+    private static final class StringItem implements Item {
+
+	private final String value;
+
+	StringItem(String token, boolean followedByDigit) {
+	    if (followedByDigit && token.length() == 1) {
+		switch (token.charAt(0)) {
+		    case 'a':
+			token = "alpha"; //NOI18N
+			break;
+		    case 'b':
+			token = "beta"; //NOI18N
+			break;
+		    case 'm':
+			token = "milestone"; //NOI18N
+			break;
+		    default:
+			break;
+		}
+	    }
+	    switch (token) {
+		case "ga": //NOI18N
+		case "final": //NOI18N
+		case "release": //NOI18N
+		    token = ""; //NOI18N
+		    break;
+		case "cr": //NOI18N
+		    token = "rc"; //NOI18N
+		    break;
+		default:
+		    break;
+	    }
+	    this.value = comparable(token);
+	}
+
+	/**
+         * @return the rank of a known qualifier, otherwise the qualifier after
+         * all of them
+         */
+	private static String comparable(String qualifier) {
+	    for (int i = 0; i < QUALIFIERS.length; i++) {
+		if (QUALIFIERS[i].equals(qualifier)) {
+		    return String.valueOf(i);
+		}
+	    }
+	    return QUALIFIERS.length + "-" + qualifier; //NOI18N
+	}
+
+	@Override
+	public boolean isNull() {
+	    return value.equals(RELEASE);
+	}
+
+	@Override
+	public int compareTo(Item other) {
+	    if (other == null) {
+		//1-rc < 1 < 1-sp
+		return value.compareTo(RELEASE);
+	    }
+	    if (other instanceof StringItem) {
+		return value.compareTo(((StringItem) other).value);
+	    }
+	    //1-sp < 1.1, 1-sp < 1-1
+	    return -1;
+	}
+    }
+
+    private static final class ListItem implements Item {
+
+	private final List<Item> items = new ArrayList<>(4);
+
+	void add(Item item) {
+	    items.add(item);
+	}
+
+	boolean isEmpty() {
+	    return items.isEmpty();
+	}
+
+	/**
+         * Drops the trailing zeros and release qualifiers, skipping over
+         * sublists: {@code 1.0-rc1} is {@code 1-rc1}.
+         */
+	void normalize() {
+	    for (int i = items.size() - 1; i >= 0; i--) {
+		Item last = items.get(i);
+		if (last.isNull()) {
+		    items.remove(i);
+		} else if (!(last instanceof ListItem)) {
+		    break;
+		}
+	    }
+	}
+
+	@Override
+	public boolean isNull() {
+	    return items.isEmpty();
+	}
+
+	@Override
+	public int compareTo(Item other) {
+	    if (other == null) {
+		return items.isEmpty() ? 0 : items.get(0).compareTo(null);
+	    }
+	    if (other instanceof IntItem) {
+		//1-1 < 1.1
+		return -1;
+	    }
+	    if (other instanceof StringItem) {
+		//1-1 > 1-sp
+		return 1;
+	    }
+	    Iterator<Item> left = items.iterator();
+	    Iterator<Item> right = ((ListItem) other).items.iterator();
+	    while (left.hasNext() || right.hasNext()) {
+		Item l = left.hasNext() ? left.next() : null;
+		Item r = right.hasNext() ? right.next() : null;
+		int c = l == null ? -r.compareTo(null) : l.compareTo(r);
+		if (c != 0) {
+		    return c;
+		}
+	    }
+	    return 0;
+	}
+    }
+}
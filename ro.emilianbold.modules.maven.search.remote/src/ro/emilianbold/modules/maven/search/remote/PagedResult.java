@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+import org.netbeans.modules.maven.indexer.spi.ResultImplementation;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Search result that is available after the first (small) page and fetches the
+ * remaining pages only when {@link #waitForSkipped()} is called.
+ *
+ * If a page cannot be fetched the pages before it are kept, the ones after
+ * it are cancelled and the result stays partial; the next
+ * {@link #waitForSkipped()} continues from the failed page.
+ */
+/* package protected */ class PagedResult implements ResultImplementation<NBVersionInfo> {
+
+    /**
+     * Loads the documents {@code [start, start + rows)} of a query.
+     */
+    interface PageLoader {
+
+	/**
+         * @return the page or null if the query failed
+         */
+	SearchPage load(int start, int rows);
+    }
+
+    private final static int PAGE_SIZE = Integer.getInteger("maven.search.remote.page.size", 500); //NOI18N
+    final static int MAX_RESULTS = Integer.getInteger("maven.search.remote.max.results", 10000); //NOI18N
+    final static int PARALLEL_PAGES = Integer.getInteger("maven.search.remote.page.parallel", 4); //NOI18N
+
+    private final static RequestProcessor RP = new RequestProcessor(PagedResult.class.getName(), PARALLEL_PAGES);
+
+    private final PageLoader loader;
+    private final long numFound;
+
+    private volatile List<NBVersionInfo> results;
+    private volatile boolean complete;
+    //the documents [0, loadedDocs) are in results
+    private int loadedDocs;
+
+    private PagedResult(PageLoader loader, SearchPage first) {
+	this.loader = loader;
+	this.numFound = first.getNumFound();
+	this.loadedDocs = first.getDocCount();
+	this.results = first.getInfos();
+	this.complete = loadedDocs >= Math.min(numFound, MAX_RESULTS);
+    }
+
+    /**
+     * Loads the first {@code firstRows} documents synchronously.
+     */
+    static ResultImplementation<NBVersionInfo> create(PageLoader loader, int firstRows) {
+	SearchPage first = loader.load(0, firstRows);
+	if (first == null) {
+	    return Utils.emptyResult();
+	}
+	return new PagedResult(loader, first);
+    }
+
+    @Override
+    public boolean isPartial() {
+	return !complete;
+    }
+
+    @Override
+    public synchronized void waitForSkipped() {
+	if (complete) {
+	    return;
+	}
+
+	long end = Math.min(numFound, MAX_RESULTS);
+	List<Future<SearchPage>> pages = new ArrayList<>((int) ((end - loadedDocs) / PAGE_SIZE) + 1);
+	for (long start = loadedDocs; start < end; start += PAGE_SIZE) {
+	    final int pageStart = (int) start;
+	    final int rows = (int) Math.min(PAGE_SIZE, end - start);
+	    pages.add(RP.submit(() -> loader.load(pageStart, rows)));
+	}
+
+	//at least one version per document, avoid regrowing a list of thousands
+	List<NBVersionInfo> all = new ArrayList<>(Math.max((int) end, results.size()));
+	all.addAll(results);
+	int loaded = loadedDocs;
+	boolean failed = false;
+	try {
+	    for (Future<SearchPage> page : pages) {
+		SearchPage p = page.get();
+		if (p == null) {
+		    failed = true;
+		    break;
+		}
+		all.addAll(p.getInfos());
+		loaded = (int) Math.min(loaded + PAGE_SIZE, end);
+	    }
+	} catch (InterruptedException ex) {
+	    Thread.currentThread().interrupt();
+	    failed = true;
+	} catch (ExecutionException ex) {
+	    Logger.getLogger(PagedResult.class.getName()).log(Level.WARNING, null, ex);
+	    failed = true;
+	}
+	if (failed) {
+	    //the rest would come after a gap
+	    pages.forEach((Future<SearchPage> f) -> f.cancel(true));
+	}
+
+	results = Collections.unmodifiableList(all);
+	loadedDocs = loaded;
+	complete = !failed;
+    }
+
+    @Override
+    public List<NBVersionInfo> getResults() {
+	return results;
+    }
+
+    @Override
+    public int getTotalResultCount() {
+	if (complete) {
+	    return results.size();
+	}
+	return (int) Math.max(Math.min(numFound, MAX_RESULTS), results.size());
+    }
+
+    @Override
+    public int getReturnedResultCount() {
+	return results.size();
+    }
+}
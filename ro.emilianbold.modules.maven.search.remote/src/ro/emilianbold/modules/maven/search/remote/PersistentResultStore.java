@@ -0,0 +1,290 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+
+/**
+ * Search pages persisted across IDE restarts.
+ *
+ * The store is an append-only file of {@code (key, timestamp, page)} records
+ * with an in-memory index of record offsets; values are only read on demand.
+ * When the file grows beyond its size limit it is compacted: superseded
+ * records are dropped and the oldest entries are evicted until the file is
+ * back to half the limit.
+ */
+/* package protected */ final class PersistentResultStore {
+
+    private static final int MAGIC = 0x4d535253; //MSRS
+    private static final int VERSION = 1;
+
+    /**
+     * A page and the time it was downloaded.
+     */
+    static final class Stored {
+
+	private final SearchPage page;
+	private final long timestamp;
+
+	Stored(SearchPage page, long timestamp) {
+	    this.page = page;
+	    this.timestamp = timestamp;
+	}
+
+	public SearchPage getPage() {
+	    return page;
+	}
+
+	public long getAge() {
+	    return System.currentTimeMillis() - timestamp;
+	}
+    }
+
+    private static final class Location {
+
+	final long offset;
+	final int length;
+	final long timestamp;
+
+	Location(long offset, int length, long timestamp) {
+	    this.offset = offset;
+	    this.length = length;
+	    this.timestamp = timestamp;
+	}
+    }
+
+    private final File file;
+    private final long maxSize;
+    private final Map<String, Location> index = new HashMap<>();
+    private RandomAccessFile raf;
+    private boolean broken;
+
+    PersistentResultStore(File file, long maxSize) {
+	this.file = file;
+	this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the stored page or null
+     */
+    public synchronized Stored get(String key) {
+	if (!open()) {
+	    return null;
+	}
+	Location l = index.get(key);
+	if (l == null) {
+	    return null;
+	}
+	try {
+	    byte[] data = new byte[l.length];
+	    raf.seek(l.offset);
+	    raf.readFully(data);
+	    return new Stored(readPage(new DataInputStream(new ByteArrayInputStream(data))), l.timestamp);
+	} catch (IOException ex) {
+	    Logger.getLogger(PersistentResultStore.class.getName()).log(Level.INFO, null, ex);
+	    index.remove(key);
+	    return null;
+	}
+    }
+
+    public synchronized void put(String key, SearchPage page) {
+	if (!open()) {
+	    return;
+	}
+	try {
+	    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	    writePage(new DataOutputStream(bytes), page);
+	    append(raf, key, System.currentTimeMillis(), bytes.toByteArray(), index);
+
+	    if (raf.length() > maxSize) {
+		compact();
+	    }
+	} catch (IOException ex) {
+	    Logger.getLogger(PersistentResultStore.class.getName()).log(Level.INFO, null, ex);
+	}
+    }
+
+    private boolean open() {
+	if (raf != null) {
+	    return true;
+	}
+	if (broken) {
+	    return false;
+	}
+	try {
+	    file.getParentFile().mkdirs();
+	    raf = new RandomAccessFile(file, "rw"); //NOI18N
+	    if (raf.length() == 0) {
+		raf.writeInt(MAGIC);
+		raf.writeInt(VERSION);
+		return true;
+	    }
+	    if (raf.readInt() != MAGIC || raf.readInt() != VERSION) {
+		raf.setLength(0);
+		raf.writeInt(MAGIC);
+		raf.writeInt(VERSION);
+		return true;
+	    }
+	    long offset = raf.getFilePointer();
+	    try {
+		while (offset < raf.length()) {
+		    String key = raf.readUTF();
+		    long timestamp = raf.readLong();
+		    int length = raf.readInt();
+		    long body = raf.getFilePointer();
+		    if (length < 0 || body + length > raf.length()) {
+			throw new EOFException();
+		    }
+		    index.put(key, new Location(body, length, timestamp));
+		    offset = body + length;
+		    raf.seek(offset);
+		}
+	    } catch (EOFException ex) {
+		//interrupted write, drop the tail
+		raf.setLength(offset);
+	    }
+	    return true;
+	} catch (IOException ex) {
+	    Logger.getLogger(PersistentResultStore.class.getName()).log(Level.INFO, "Cannot open " + file, ex); //NOI18N
+	    broken = true;
+	    index.clear();
+	    close();
+	    return false;
+	}
+    }
+
+    private void compact() throws IOException {
+	List<Map.Entry<String, Location>> live = new ArrayList<>(index.entrySet());
+	//newest first
+	live.sort((Map.Entry<String, Location> e1, Map.Entry<String, Location> e2) -> Long.compare(e2.getValue().timestamp, e1.getValue().timestamp));
+
+	File tmp = new File(file.getParentFile(), file.getName() + ".tmp"); //NOI18N
+	Map<String, Location> compacted = new HashMap<>();
+	try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) { //NOI18N
+	    out.setLength(0);
+	    out.writeInt(MAGIC);
+	    out.writeInt(VERSION);
+	    for (Map.Entry<String, Location> e : live) {
+		Location l = e.getValue();
+		if (out.length() + l.length > maxSize / 2) {
+		    break;
+		}
+		byte[] data = new byte[l.length];
+		raf.seek(l.offset);
+		raf.readFully(data);
+		append(out, e.getKey(), l.timestamp, data, compacted);
+	    }
+	}
+
+	close();
+	if (!file.delete() || !tmp.renameTo(file)) {
+	    broken = true;
+	    index.clear();
+	    throw new IOException("Cannot replace " + file); //NOI18N
+	}
+	index.clear();
+	index.putAll(compacted);
+	raf = new RandomAccessFile(file, "rw"); //NOI18N
+    }
+
+    private void close() {
+	if (raf != null) {
+	    try {
+		raf.close();
+	    } catch (IOException ex) {
+		Logger.getLogger(PersistentResultStore.class.getName()).log(Level.FINE, null, ex);
+	    }
+	    raf = null;
+	}
+    }
+
+    private static void append(RandomAccessFile out, String key, long timestamp, byte[] data, Map<String, Location> index) throws IOException {
+	out.seek(out.length());
+	out.writeUTF(key);
+	out.writeLong(timestamp);
+	out.writeInt(data.length);
+	long body = out.getFilePointer();
+	out.write(data);
+	index.put(key, new Location(body, data.length, timestamp));
+    }
+
+    private static void writePage(DataOutputStream out, SearchPage page) throws IOException {
+	out.writeLong(page.getNumFound());
+	out.writeInt(page.getDocCount());
+	out.writeInt(page.getInfos().size());
+	for (NBVersionInfo info : page.getInfos()) {
+	    writeString(out, info.getRepoId());
+	    writeString(out, info.getGroupId());
+	    writeString(out, info.getArtifactId());
+	    writeString(out, info.getVersion());
+	    writeString(out, info.getType());
+	    writeString(out, info.getPackaging());
+	    writeString(out, info.getProjectName());
+	    writeString(out, info.getProjectDescription());
+	    writeString(out, info.getClassifier());
+	}
+    }
+
+    private static SearchPage readPage(DataInputStream in) throws IOException {
+	long numFound = in.readLong();
+	int docCount = in.readInt();
+	int size = in.readInt();
+	List<NBVersionInfo> infos = new ArrayList<>(size);
+	for (int i = 0; i < size; i++) {
+	    infos.add(new NBVersionInfo(
+		    readString(in), readString(in), readString(in), readString(in),
+		    readString(in), readString(in), readString(in), readString(in),
+		    readString(in)));
+	}
+	return new SearchPage(numFound, docCount, infos);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+	out.writeBoolean(s != null);
+	if (s != null) {
+	    out.writeUTF(s);
+	}
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+	return in.readBoolean() ? in.readUTF() : null;
+    }
+}
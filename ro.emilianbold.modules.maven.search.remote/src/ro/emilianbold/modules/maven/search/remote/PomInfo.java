@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * The parts of a POM needed to tell what it depends on: coordinates, parent,
+ * properties, dependencies and dependency management. Values are raw, not
+ * interpolated.
+ */
+/* package protected */ final class PomInfo {
+
+    static final class Dependency {
+
+	private final String groupId;
+	private final String artifactId;
+	private final String version;
+	private final String type;
+	private final String scope;
+
+	Dependency(Map<String, String> fields) {
+	    this.groupId = fields.get("groupId"); //NOI18N
+	    this.artifactId = fields.get("artifactId"); //NOI18N
+	    this.version = fields.get("version"); //NOI18N
+	    this.type = fields.get("type"); //NOI18N
+	    this.scope = fields.get("scope"); //NOI18N
+	}
+
+	public String getGroupId() {
+	    return groupId;
+	}
+
+	public String getArtifactId() {
+	    return artifactId;
+	}
+
+	public String getVersion() {
+	    return version;
+	}
+
+	public String getType() {
+	    return type;
+	}
+
+	public String getScope() {
+	    return scope;
+	}
+
+	public boolean isImport() {
+	    return "import".equals(scope) && "pom".equals(type); //NOI18N
+	}
+    }
+
+    private static final String PROJECT = "/project/"; //NOI18N
+    private static final String PARENT = "/project/parent/"; //NOI18N
+    private static final String PROPERTIES = "/project/properties/"; //NOI18N
+    private static final String DEPENDENCY = "/project/dependencies/dependency"; //NOI18N
+    private static final String MANAGED_DEPENDENCY = "/project/dependencyManagement/dependencies/dependency"; //NOI18N
+
+    private final Map<String, String> coordinates = new HashMap<>();
+    private final Map<String, String> parent = new HashMap<>();
+    private final Map<String, String> properties = new HashMap<>();
+    private final List<Dependency> dependencies = new ArrayList<>();
+    private final List<Dependency> managed = new ArrayList<>();
+
+    private PomInfo() {
+    }
+
+    public String getGroupId() {
+	return coordinates.get("groupId"); //NOI18N
+    }
+
+    public String getArtifactId() {
+	return coordinates.get("artifactId"); //NOI18N
+    }
+
+    public String getVersion() {
+	return coordinates.get("version"); //NOI18N
+    }
+
+    public String getParentGroupId() {
+	return parent.get("groupId"); //NOI18N
+    }
+
+    public String getParentArtifactId() {
+	return parent.get("artifactId"); //NOI18N
+    }
+
+    public String getParentVersion() {
+	return parent.get("version"); //NOI18N
+    }
+
+    public Map<String, String> getProperties() {
+	return Collections.unmodifiableMap(properties);
+    }
+
+    public List<Dependency> getDependencies() {
+	return Collections.unmodifiableList(dependencies);
+    }
+
+    public List<Dependency> getManagedDependencies() {
+	return Collections.unmodifiableList(managed);
+    }
+
+    /**
+     * Streams through the POM keeping only the elements listed above;
+     * profiles, plugins and the like are skipped.
+     */
+    static PomInfo parse(InputStream in) throws XMLStreamException {
+	XMLInputFactory factory = XMLInputFactory.newInstance();
+	factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+	factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+	PomInfo pom = new PomInfo();
+	StringBuilder path = new StringBuilder();
+	StringBuilder text = new StringBuilder();
+	Map<String, String> dependency = new HashMap<>();
+
+	XMLStreamReader r = factory.createXMLStreamReader(in);
+	try {
+	    while (r.hasNext()) {
+		switch (r.next()) {
+		    case XMLStreamConstants.START_ELEMENT:
+			path.append('/').append(r.getLocalName());
+			text.setLength(0);
+			break;
+		    case XMLStreamConstants.CHARACTERS:
+		    case XMLStreamConstants.CDATA:
+			text.append(r.getText());
+			break;
+		    case XMLStreamConstants.END_ELEMENT:
+			pom.element(path.toString(), r.getLocalName(), text.toString().trim(), dependency);
+			path.setLength(path.length() - r.getLocalName().length() - 1);
+			text.setLength(0);
+			break;
+		    default:
+			break;
+		}
+	    }
+	} finally {
+	    r.close();
+	}
+	return pom;
+    }
+
+    private void element(String path, String name, String value, Map<String, String> dependency) {
+	if (path.equals(DEPENDENCY)) {
+	    dependencies.add(new Dependency(dependency));
+	    dependency.clear();
+	} else if (path.equals(MANAGED_DEPENDENCY)) {
+	    managed.add(new Dependency(dependency));
+	    dependency.clear();
+	} else if (isChild(path, DEPENDENCY + '/', name) || isChild(path, MANAGED_DEPENDENCY + '/', name)) {
+	    dependency.put(name, value);
+	} else if (isChild(path, PARENT, name)) {
+	    parent.put(name, value);
+	} else if (isChild(path, PROPERTIES, name)) {
+	    properties.put(name, value);
+	} else if (isChild(path, PROJECT, name)) {
+	    coordinates.put(name, value);
+	}
+    }
+
+    private static boolean isChild(String path, String parentPath, String name) {
+	return path.length() == parentPath.length() + name.length() && path.startsWith(parentPath);
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+import org.netbeans.modules.maven.indexer.api.RepositoryInfo;
+import org.netbeans.modules.maven.indexer.spi.ResultImplementation;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Fetches the searches the POM editor is likely to send next: once a groupId
+ * is picked the versions of its likely artifacts, once an artifactId is
+ * picked the records of its newest versions. The next completion is then
+ * answered from the cache.
+ *
+ * Prefetching runs at background priority within a budget of concurrent
+ * requests and bytes transferred per minute, and stops while the repository
+ * is slow or failing. There is no portable way to tell a metered connection,
+ * turn it off there with
+ * {@code -J-Dmaven.search.remote.prefetch.disabled=true}.
+ */
+/* package protected */ final class Prefetcher {
+
+    private final static boolean ENABLED = !Boolean.getBoolean("maven.search.remote.prefetch.disabled"); //NOI18N
+    private final static int MAX_REQUESTS = Integer.getInteger("maven.search.remote.prefetch.requests", 2); //NOI18N
+    //kilobytes transferred per minute, as received: compressed, cache hits are free
+    private final static long BUDGET = Integer.getInteger("maven.search.remote.prefetch.budget", 1024) * 1024L; //NOI18N
+    private final static long MAX_LATENCY = Integer.getInteger("maven.search.remote.prefetch.latency", 1500); //NOI18N
+    private final static int ARTIFACTS = Integer.getInteger("maven.search.remote.prefetch.artifacts", 3); //NOI18N
+    private final static int VERSIONS = Integer.getInteger("maven.search.remote.prefetch.versions", 2); //NOI18N
+    //older guesses are useless once the user moved on
+    private final static int MAX_QUEUED = 16;
+    private final static long WINDOW = 60 * 1000L;
+
+    private final static RequestProcessor RP = new RequestProcessor(Prefetcher.class.getName(), MAX_REQUESTS);
+
+    private final Function<RepositoryInfo, MavenCentralGenericFindQuery> resolver;
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+
+    private long windowStart;
+    private long spent;
+
+    /**
+     * @param resolver the search of a repository, null if it is not handled
+     */
+    Prefetcher(Function<RepositoryInfo, MavenCentralGenericFindQuery> resolver) {
+	this.resolver = resolver;
+    }
+
+    /**
+     * The artifacts of {@code groupId} were listed: prefetches the versions
+     * of the ones most likely picked, those named after the group first.
+     */
+    void groupChosen(String groupId, ResultImplementation<NBVersionInfo> artifacts, List<RepositoryInfo> repos) {
+	if (!ENABLED) {
+	    return;
+	}
+	RP.post(() -> {
+	    String name = groupId.substring(groupId.lastIndexOf('.') + 1);
+	    Set<String> named = new LinkedHashSet<>();
+	    Set<String> others = new LinkedHashSet<>();
+	    for (NBVersionInfo info : artifacts.getResults()) {
+		String artifactId = info.getArtifactId();
+		if (artifactId != null) {
+		    (artifactId.startsWith(name) ? named : others).add(artifactId);
+		}
+	    }
+	    named.addAll(others);
+	    int count = 0;
+	    for (String artifactId : named) {
+		if (count++ >= ARTIFACTS) {
+		    break;
+		}
+		schedule(groupId, artifactId, null, repos);
+	    }
+	});
+    }
+
+    /**
+     * The versions of {@code groupId:artifactId} were listed: prefetches the
+     * records of the newest ones.
+     */
+    void artifactChosen(String groupId, String artifactId, ResultImplementation<NBVersionInfo> versions, List<RepositoryInfo> repos) {
+	if (!ENABLED) {
+	    return;
+	}
+	RP.post(() -> {
+	    Set<String> newest = new LinkedHashSet<>();
+	    for (NBVersionInfo info : versions.getResults()) {
+		if (newest.size() >= VERSIONS) {
+		    break;
+		}
+		if (info.getVersion() != null) {
+		    newest.add(info.getVersion());
+		}
+	    }
+	    for (String version : newest) {
+		schedule(groupId, artifactId, version, repos);
+	    }
+	});
+    }
+
+    private void schedule(String groupId, String artifactId, String version, List<RepositoryInfo> repos) {
+	List<MavenCentralGenericFindQuery> targets = new ArrayList<>(repos.size());
+	for (RepositoryInfo r : repos) {
+	    MavenCentralGenericFindQuery q = resolver.apply(r);
+	    if (q != null && !targets.contains(q)) {
+		targets.add(q);
+	    }
+	}
+	for (MavenCentralGenericFindQuery q : targets) {
+	    String key = q.getRepositoryId() + '|' + groupId + ':' + artifactId + ':' + version;
+	    if (queued.size() >= MAX_QUEUED || !queued.add(key)) {
+		continue;
+	    }
+	    RP.post(() -> {
+		try {
+		    if (q.isHealthy(MAX_LATENCY) && withinBudget()) {
+			SearchPage page = q.prefetch(groupId, artifactId, version);
+			if (page != null) {
+			    spend(page.getWireBytes());
+			}
+		    }
+		} finally {
+		    queued.remove(key);
+		}
+	    });
+	}
+    }
+
+    private synchronized boolean withinBudget() {
+	long now = System.currentTimeMillis();
+	if (now - windowStart >= WINDOW) {
+	    windowStart = now;
+	    spent = 0;
+	}
+	return spent < BUDGET;
+    }
+
+    private synchronized void spend(long bytes) {
+	spent += bytes;
+    }
+}
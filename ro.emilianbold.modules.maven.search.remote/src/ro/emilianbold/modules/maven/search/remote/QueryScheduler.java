@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Runs queries with bounded concurrency, highest priority first.
+ *
+ * Every submitted task posts one worker to a {@link RequestProcessor} of the
+ * given throughput; a worker runs whatever task has the highest priority when
+ * it gets a thread, so an interactive query overtakes queued background ones.
+ */
+/* package protected */ final class QueryScheduler {
+
+    enum Priority {
+	/**
+	 * The user is typing and waiting for the answer.
+	 */
+	INTERACTIVE,
+	NORMAL,
+	/**
+	 * Listings, later pages and cache refreshes.
+	 */
+	BACKGROUND
+    }
+
+    final class Task implements Comparable<Task> {
+
+	private final Runnable work;
+	private final long sequence;
+	private volatile Priority priority;
+
+	private Task(Runnable work, Priority priority, long sequence) {
+	    this.work = work;
+	    this.priority = priority;
+	    this.sequence = sequence;
+	}
+
+	/**
+	 * Moves a queued task up when a more urgent caller needs it too.
+	 */
+	void promote(Priority p) {
+	    synchronized (this) {
+		if (p.compareTo(priority) >= 0) {
+		    return;
+		}
+		//the queue orders on the priority, never change it while queued
+		boolean queued = queue.remove(this);
+		priority = p;
+		if (queued) {
+		    queue.add(this);
+		}
+	    }
+	}
+
+	@Override
+	public int compareTo(Task o) {
+	    int c = priority.compareTo(o.priority);
+	    return c != 0 ? c : Long.compare(sequence, o.sequence);
+	}
+    }
+
+    private final static RequestProcessor DEBOUNCE_RP = new RequestProcessor(QueryScheduler.class.getName() + ".debounce"); //NOI18N
+
+    private final PriorityBlockingQueue<Task> queue = new PriorityBlockingQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final RequestProcessor rp;
+    private final int debounceMillis;
+
+    QueryScheduler(String name, int throughput, int debounceMillis) {
+	this.rp = new RequestProcessor(name, throughput);
+	this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * @param debounce delay the task a little, it is likely to be superseded
+     * by a newer one (eg. the user is still typing)
+     */
+    Task submit(Runnable work, Priority priority, boolean debounce) {
+	Task task = new Task(work, priority, sequence.incrementAndGet());
+	if (debounce && debounceMillis > 0) {
+	    DEBOUNCE_RP.post(() -> enqueue(task), debounceMillis);
+	} else {
+	    enqueue(task);
+	}
+	return task;
+    }
+
+    private void enqueue(Task task) {
+	synchronized (task) {
+	    queue.add(task);
+	}
+	rp.post(() -> {
+	    Task next = queue.poll();
+	    if (next != null) {
+		next.work.run();
+	    }
+	});
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.netbeans.modules.maven.indexer.api.RepositoryInfo;
+
+/**
+ * Remote repositories other than Central which have a search endpoint
+ * speaking the search.maven.org Solr API, eg. a repository manager:
+ * <pre>
+ * -J-Dmaven.search.remote.federated=corp
+ * -J-Dmaven.search.remote.federated.corp.url=https://nexus.corp/repository/releases/
+ * -J-Dmaven.search.remote.federated.corp.search=https://nexus.corp/solr/select
+ * </pre>
+ * Repositories are matched by URL, the id in the user's settings may differ.
+ * Only the configuration is read here, the endpoints are created on first
+ * search.
+ */
+/* package protected */ final class RemoteRepositories {
+
+    private static final String PREFIX = "maven.search.remote.federated"; //NOI18N
+
+    private final Map<String, List<String>> byURL;
+
+    private RemoteRepositories(Map<String, List<String>> byURL) {
+	this.byURL = byURL;
+    }
+
+    static RemoteRepositories configured() {
+	Map<String, List<String>> byURL = new HashMap<>();
+	for (String name : SearchEndpoints.parse(System.getProperty(PREFIX, ""))) { //NOI18N
+	    String url = System.getProperty(PREFIX + '.' + name + ".url"); //NOI18N
+	    String search = System.getProperty(PREFIX + '.' + name + ".search"); //NOI18N
+	    if (url == null || search == null || SearchEndpoints.parse(search).isEmpty()) {
+		continue;
+	    }
+	    byURL.put(Utils.stripSlash(url.trim()), Collections.unmodifiableList(SearchEndpoints.parse(search)));
+	}
+	return new RemoteRepositories(Collections.unmodifiableMap(byURL));
+    }
+
+    /**
+     * @return the search URLs of {@code r} or null if it is not a configured
+     * repository
+     */
+    List<String> find(RepositoryInfo r) {
+	if (byURL.isEmpty() || r.isLocal() || r.getRepositoryUrl() == null) {
+	    return null;
+	}
+	return byURL.get(Utils.stripSlash(r.getRepositoryUrl()));
+    }
+}
@@ -0,0 +1,319 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Sends idempotent search requests with a bound on their latency:
+ * <ul>
+ * <li>connect and read timeouts follow the observed latency instead of the
+ * configured worst case, which stays the upper limit;</li>
+ * <li>every request has a hard deadline after which its calls are
+ * cancelled;</li>
+ * <li>a response slower than the recent 95th percentile gets a hedged second
+ * call, the first to answer wins;</li>
+ * <li>failures are retried with jittered exponential backoff;</li>
+ * <li>while the {@link EndpointHealth} breaker is open only the OkHttp cache
+ * is consulted.</li>
+ * </ul>
+ */
+/* package protected */ final class ResilientExecutor {
+
+    private final static long DEADLINE = Integer.getInteger("maven.search.remote.timeout.deadline", 15) * 1000L; //NOI18N
+    private final static long MIN_TIMEOUT = Integer.getInteger("maven.search.remote.timeout.min", 2) * 1000L; //NOI18N
+    private final static int RETRIES = Integer.getInteger("maven.search.remote.retries", 2); //NOI18N
+    private final static long BACKOFF = Integer.getInteger("maven.search.remote.retry.backoff", 200); //NOI18N
+    private final static long MIN_HEDGE_DELAY = 100;
+    private final static boolean HEDGE = !Boolean.getBoolean("maven.search.remote.hedge.disabled"); //NOI18N
+
+    private final static Logger LOG = Logger.getLogger(ResilientExecutor.class.getName());
+
+    private final static RequestProcessor TIMER = new RequestProcessor(ResilientExecutor.class.getName());
+
+    private final static CacheControl CACHE_ONLY = new CacheControl.Builder()
+	    .onlyIfCached()
+	    .maxStale(Integer.MAX_VALUE, TimeUnit.SECONDS)
+	    .build();
+
+    private final OkHttpClient client;
+    private final EndpointHealth health;
+    private final SearchMetrics metrics;
+
+    private OkHttpClient tuned;
+    private long tunedTimeout;
+
+    ResilientExecutor(OkHttpClient client, EndpointHealth health, SearchMetrics metrics) {
+	this.client = client;
+	this.health = health;
+	this.metrics = metrics;
+    }
+
+    EndpointHealth getHealth() {
+	return health;
+    }
+
+    /**
+     * Opens a pooled connection to {@code url} ahead of the first search so
+     * it does not pay for DNS, TCP and TLS. The answer itself is ignored and
+     * so are failures, the search will report them.
+     */
+    void preconnect(String url) {
+	if (!health.isAvailable()) {
+	    return;
+	}
+	Request request = new Request.Builder()
+		.url(url)
+		.head()
+		.cacheControl(CacheControl.FORCE_NETWORK)
+		.build();
+	client.newCall(request).enqueue(new Callback() {
+	    @Override
+	    public void onFailure(Call call, IOException e) {
+		LOG.log(Level.FINE, "Cannot pre-connect to " + url, e); //NOI18N
+	    }
+
+	    @Override
+	    public void onResponse(Call call, Response response) {
+		response.close();
+	    }
+	});
+    }
+
+    /**
+     * @param flight to attach the calls to, may be null
+     * @return the response; while the breaker is open a cached one or a 504
+     * @throws IOException if all attempts failed or the deadline passed
+     */
+    Response execute(Request request, SingleFlight.Flight flight) throws IOException {
+	if (!health.allowRequest()) {
+	    metrics.rejected();
+	    return client.newCall(request.newBuilder().cacheControl(CACHE_ONLY).build()).execute();
+	}
+
+	long deadline = System.currentTimeMillis() + deadline();
+	for (int attempt = 0;; attempt++) {
+	    try {
+		return attempt(request, flight, deadline);
+	    } catch (IOException ex) {
+		if ((flight != null && flight.isCancelled()) || Thread.currentThread().isInterrupted()) {
+		    throw ex;
+		}
+		health.failure();
+		long backoff = (long) ((BACKOFF << attempt) * (0.5 + ThreadLocalRandom.current().nextDouble()));
+		if (attempt >= RETRIES || System.currentTimeMillis() + backoff >= deadline || !health.allowRequest()) {
+		    throw ex;
+		}
+		metrics.retried();
+		try {
+		    Thread.sleep(backoff);
+		} catch (InterruptedException ie) {
+		    Thread.currentThread().interrupt();
+		    throw new InterruptedIOException();
+		}
+	    }
+	}
+    }
+
+    private Response attempt(Request request, SingleFlight.Flight flight, long deadline) throws IOException {
+	final OkHttpClient c = tunedClient();
+	final long start = System.currentTimeMillis();
+	final CompletableFuture<Response> winner = new CompletableFuture<>();
+	final List<Call> calls = new CopyOnWriteArrayList<>();
+	final AtomicInteger failed = new AtomicInteger();
+
+	Callback callback = new Callback() {
+	    @Override
+	    public void onResponse(Call call, Response response) throws IOException {
+		if (response.code() >= 500 || response.code() == 429) {
+		    response.close();
+		    onFailure(call, new IOException("HTTP " + response.code() + " for " + request.url())); //NOI18N
+		    return;
+		}
+		if (winner.complete(response)) {
+		    for (Call other : calls) {
+			if (other != call) {
+			    other.cancel();
+			}
+		    }
+		} else {
+		    response.close();
+		}
+	    }
+
+	    @Override
+	    public void onFailure(Call call, IOException ex) {
+		//a pending hedge may still answer
+		if (failed.incrementAndGet() >= calls.size()) {
+		    winner.completeExceptionally(ex);
+		}
+	    }
+	};
+
+	start(c.newCall(request), calls, flight, callback);
+
+	RequestProcessor.Task hedge = null;
+	long p95 = HEDGE ? health.percentile(0.95) : -1;
+	if (p95 >= 0) {
+	    //on a fast network a few ms of jitter is no reason for a second call
+	    long hedgeDelay = Math.max(p95, MIN_HEDGE_DELAY);
+	    hedge = TIMER.post(() -> {
+		if (!winner.isDone()) {
+		    metrics.hedged();
+		    //untagged: the metrics sample belongs to the first call
+		    start(c.newCall(request.newBuilder().tag(null).build()), calls, flight, callback);
+		}
+	    }, (int) hedgeDelay);
+	}
+	RequestProcessor.Task timeout = TIMER.post(() -> calls.forEach(Call::cancel), (int) Math.max(0, deadline - System.currentTimeMillis()));
+
+	boolean answered = false;
+	try {
+	    Response response = winner.get();
+	    answered = true;
+	    //recorded here, not in the callback, so it is done when this returns
+	    //cache hits did not ask the endpoint and revalidations did not
+	    //transfer the body: only plain network answers are latencies
+	    if (response.networkResponse() != null) {
+		if (response.cacheResponse() == null) {
+		    health.success(System.currentTimeMillis() - start);
+		} else {
+		    health.success();
+		}
+	    }
+	    //the deadline also bounds reading the body, until it is closed
+	    return response.newBuilder()
+		    .body(new DeadlineBody(response.body(), timeout))
+		    .build();
+	} catch (InterruptedException ex) {
+	    calls.forEach(Call::cancel);
+	    Thread.currentThread().interrupt();
+	    throw new InterruptedIOException();
+	} catch (ExecutionException ex) {
+	    throw ex.getCause() instanceof IOException ? (IOException) ex.getCause() : new IOException(ex.getCause());
+	} finally {
+	    if (hedge != null) {
+		hedge.cancel();
+	    }
+	    if (!answered) {
+		timeout.cancel();
+	    }
+	}
+    }
+
+    /**
+     * Cancels the deadline timer once the body is closed, so finished
+     * requests do not keep their calls reachable from the timer queue.
+     */
+    private static final class DeadlineBody extends ResponseBody {
+
+	private final ResponseBody body;
+	private final BufferedSource source;
+
+	DeadlineBody(ResponseBody body, RequestProcessor.Task timeout) {
+	    this.body = body;
+	    this.source = Okio.buffer(new ForwardingSource(body.source()) {
+		@Override
+		public void close() throws IOException {
+		    timeout.cancel();
+		    super.close();
+		}
+	    });
+	}
+
+	@Override
+	public MediaType contentType() {
+	    return body.contentType();
+	}
+
+	@Override
+	public long contentLength() {
+	    return body.contentLength();
+	}
+
+	@Override
+	public BufferedSource source() {
+	    return source;
+	}
+    }
+
+    private static void start(Call call, List<Call> calls, SingleFlight.Flight flight, Callback callback) {
+	calls.add(call);
+	if (flight != null) {
+	    flight.attach(call);
+	}
+	call.enqueue(callback);
+    }
+
+    private long deadline() {
+	long p99 = health.percentile(0.99);
+	return p99 < 0 ? DEADLINE : Math.max(MIN_TIMEOUT, Math.min(DEADLINE, 4 * p99));
+    }
+
+    /**
+     * The client with connect and read timeouts derived from the recent
+     * latencies, rounded so it is rebuilt only when they change noticeably.
+     */
+    private synchronized OkHttpClient tunedClient() {
+	long p99 = health.percentile(0.99);
+	if (p99 < 0) {
+	    return client;
+	}
+	long timeout = Math.max(MIN_TIMEOUT, (4 * p99 + 499) / 500 * 500);
+	if (tuned == null || timeout != tunedTimeout) {
+	    //shares the connection pool, dispatcher and cache of the original
+	    tuned = client.newBuilder()
+		    .connectTimeout(Math.min(timeout, client.connectTimeoutMillis()), TimeUnit.MILLISECONDS)
+		    .readTimeout(Math.min(timeout, client.readTimeoutMillis()), TimeUnit.MILLISECONDS)
+		    .build();
+	    tunedTimeout = timeout;
+	}
+	return tuned;
+    }
+}
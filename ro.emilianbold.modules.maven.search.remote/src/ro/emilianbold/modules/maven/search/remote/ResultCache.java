@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * In-memory LRU cache of decoded results, bounded by entry count and by an
+ * estimate of the retained memory. Entries expire after a fixed time to live.
+ */
+/* package protected */ final class ResultCache<V> {
+
+    private static final class Entry<V> {
+
+	final V value;
+	final long weight;
+	final long expires;
+
+	Entry(V value, long weight, long expires) {
+	    this.value = value;
+	    this.weight = weight;
+	    this.expires = expires;
+	}
+    }
+
+    private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxEntries;
+    private final long maxWeight;
+    private final long ttlMillis;
+    private final ToLongFunction<V> weigher;
+
+    private long weight;
+
+    /**
+     * @param maxEntries maximum number of entries
+     * @param maxWeight maximum sum of the entry weights, in bytes
+     * @param ttlMillis time to live of an entry, {@code Long.MAX_VALUE} for
+     * entries that never expire
+     * @param weigher estimates the memory retained by a value
+     */
+    ResultCache(int maxEntries, long maxWeight, long ttlMillis, ToLongFunction<V> weigher) {
+	this.maxEntries = maxEntries;
+	this.maxWeight = maxWeight;
+	this.ttlMillis = ttlMillis;
+	this.weigher = weigher;
+    }
+
+    /**
+     * @return the cached value or null if missing or expired
+     */
+    public synchronized V get(String key) {
+	Entry<V> e = entries.get(key);
+	if (e == null) {
+	    return null;
+	}
+	if (e.expires < System.currentTimeMillis()) {
+	    entries.remove(key);
+	    weight -= e.weight;
+	    return null;
+	}
+	return e.value;
+    }
+
+    public synchronized void put(String key, V value) {
+	long w = weigher.applyAsLong(value);
+	if (w > maxWeight || maxEntries <= 0) {
+	    return;
+	}
+	long expires = ttlMillis == Long.MAX_VALUE ? Long.MAX_VALUE : System.currentTimeMillis() + ttlMillis;
+	Entry<V> old = entries.put(key, new Entry<>(value, w, expires));
+	if (old != null) {
+	    weight -= old.weight;
+	}
+	weight += w;
+
+	Iterator<Map.Entry<String, Entry<V>>> it = entries.entrySet().iterator();
+	while ((entries.size() > maxEntries || weight > maxWeight) && it.hasNext()) {
+	    weight -= it.next().getValue().weight;
+	    it.remove();
+	}
+    }
+
+    public synchronized void clear() {
+	entries.clear();
+	weight = 0;
+    }
+}
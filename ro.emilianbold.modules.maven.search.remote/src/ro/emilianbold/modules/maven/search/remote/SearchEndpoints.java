@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import okhttp3.OkHttpClient;
+
+/**
+ * The Solr endpoints answering searches for one repository, eg. a mirror on
+ * the LAN in front of search.maven.org. Each has its own
+ * {@link EndpointHealth}; searches go to the fastest available one and fail
+ * over to the next.
+ *
+ * An endpoint which was not used for a while is tried first once so its
+ * latency stays current, otherwise a mirror that was slow in the morning
+ * would never be picked again.
+ */
+/* package protected */ final class SearchEndpoints {
+
+    private final static String DEFAULT_SEARCH_URL = "http://search.maven.org/solrsearch/select"; //NOI18N
+    //comma separated Solr select URLs, eg. a LAN mirror first and Central as fallback
+    private final static String SEARCH_URLS = System.getProperty("maven.search.remote.url", DEFAULT_SEARCH_URL); //NOI18N
+
+    private final static long PROBE_INTERVAL = Integer.getInteger("maven.search.remote.endpoint.probe", 60) * 1000L; //NOI18N
+
+    static final class Endpoint {
+
+	private final String url;
+	private final ResilientExecutor executor;
+	private volatile long lastUsed;
+
+	private Endpoint(String url, ResilientExecutor executor) {
+	    this.url = url;
+	    this.executor = executor;
+	}
+
+	String getURL() {
+	    return url;
+	}
+
+	/**
+         * @param query see {@link SolrQuery#toQuery}
+         */
+	String url(String query) {
+	    return url + (url.indexOf('?') == -1 ? '?' : '&') + query;
+	}
+
+	ResilientExecutor getExecutor() {
+	    return executor;
+	}
+
+	EndpointHealth getHealth() {
+	    return executor.getHealth();
+	}
+    }
+
+    private final List<Endpoint> endpoints;
+
+    /**
+     * @param urls Solr select URLs, in order of preference while there are no
+     * latencies to compare yet
+     */
+    SearchEndpoints(List<String> urls, OkHttpClient client, SearchMetrics metrics) {
+	List<Endpoint> l = new ArrayList<>(urls.size());
+	for (String url : urls) {
+	    l.add(new Endpoint(url, new ResilientExecutor(client, new EndpointHealth(), metrics)));
+	}
+	this.endpoints = Collections.unmodifiableList(l);
+    }
+
+    /**
+     * The endpoints of Central and its mirrors.
+     */
+    static SearchEndpoints central(OkHttpClient client, SearchMetrics metrics) {
+	List<String> urls = parse(SEARCH_URLS);
+	return new SearchEndpoints(urls.isEmpty() ? Collections.singletonList(DEFAULT_SEARCH_URL) : urls, client, metrics);
+    }
+
+    /**
+     * Splits a comma separated property value.
+     */
+    static List<String> parse(String urls) {
+	List<String> l = new ArrayList<>();
+	for (String url : urls.split(",")) { //NOI18N
+	    url = url.trim();
+	    if (!url.isEmpty()) {
+		l.add(url);
+	    }
+	}
+	return l;
+    }
+
+    /**
+     * Warms up a connection to every endpoint, see
+     * {@link ResilientExecutor#preconnect}.
+     */
+    void preconnect() {
+	for (Endpoint e : endpoints) {
+	    e.getExecutor().preconnect(e.getURL());
+	}
+    }
+
+    List<Endpoint> getEndpoints() {
+	return endpoints;
+    }
+
+    /**
+     * @return whether every endpoint has its circuit breaker open
+     */
+    boolean isDown() {
+	return endpoints.stream().noneMatch((Endpoint e) -> e.getHealth().isAvailable());
+    }
+
+    /**
+     * @return whether an endpoint with a closed breaker answers within
+     * {@code maxLatency} milliseconds on average, or was not measured yet
+     */
+    boolean isHealthy(long maxLatency) {
+	for (Endpoint e : endpoints) {
+	    EndpointHealth health = e.getHealth();
+	    if (!health.isOpen() && health.getAverageLatency() <= maxLatency) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    /**
+     * @return the endpoints in the order they should be tried: an endpoint
+     * due for a probe, then the available ones fastest first, then the rest.
+     * Only answers from the network count for the speed, see
+     * {@link EndpointHealth#success(long)}. Empty if there are no endpoints.
+     */
+    List<Endpoint> candidates() {
+	if (endpoints.size() <= 1) {
+	    if (!endpoints.isEmpty()) {
+		endpoints.get(0).lastUsed = System.currentTimeMillis();
+	    }
+	    return endpoints;
+	}
+
+	long now = System.currentTimeMillis();
+	List<Endpoint> available = new ArrayList<>(endpoints.size());
+	List<Endpoint> unavailable = new ArrayList<>(1);
+	Endpoint probe = null;
+	for (Endpoint e : endpoints) {
+	    if (!e.getHealth().isAvailable()) {
+		unavailable.add(e);
+	    } else if (probe == null && now - e.lastUsed > PROBE_INTERVAL) {
+		probe = e;
+	    } else {
+		available.add(e);
+	    }
+	}
+	//unknown latencies (-1) sort first so every endpoint gets measured
+	available.sort(Comparator.comparingDouble((Endpoint e) -> e.getHealth().getAverageLatency()));
+	if (probe != null) {
+	    available.add(0, probe);
+	}
+	available.addAll(unavailable);
+	available.get(0).lastUsed = now;
+	return available;
+    }
+}
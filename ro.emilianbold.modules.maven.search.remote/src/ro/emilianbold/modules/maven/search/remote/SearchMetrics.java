@@ -0,0 +1,366 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+/**
+ * Counters and timings of the Maven central searches.
+ *
+ * Each search creates a {@link Sample} which is also the OkHttp
+ * {@link EventListener} of its call (see {@link #FACTORY}) so the network
+ * phases are timed without any lookup. Everything is recorded in
+ * {@link Histogram}s and adders, nothing is locked on the search path.
+ */
+/* package protected */ final class SearchMetrics implements SearchMetricsMXBean {
+
+    static final String OBJECT_NAME = "ro.emilianbold.modules.maven.search.remote:type=SearchMetrics"; //NOI18N
+
+    private final static Logger LOG = Logger.getLogger(SearchMetrics.class.getName());
+
+    /**
+     * Uses the {@link Sample} set as request tag as listener, calls made
+     * without one are not observed.
+     */
+    static final EventListener.Factory FACTORY = (Call call) -> {
+	Object tag = call.request().tag();
+	return tag instanceof Sample ? (Sample) tag : EventListener.NONE;
+    };
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder docs = new LongAdder();
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder storeHits = new LongAdder();
+    private final LongAdder httpCacheHits = new LongAdder();
+    private final LongAdder httpNetwork = new LongAdder();
+    private final LongAdder uncompressed = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final AtomicBoolean uncompressedLogged = new AtomicBoolean();
+
+    //all in microseconds
+    private final Histogram dns = new Histogram();
+    private final Histogram connect = new Histogram();
+    private final Histogram firstByte = new Histogram();
+    private final Histogram body = new Histogram();
+    private final Histogram total = new Histogram();
+
+    private volatile long slowQueryThreshold = Integer.getInteger("maven.search.remote.metrics.slow", 0); //NOI18N
+
+    /**
+     * Makes the metrics visible to JMX clients, eg. VisualVM.
+     */
+    void register() {
+	try {
+	    ObjectName name = new ObjectName(OBJECT_NAME);
+	    if (ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+	    }
+	    ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+	} catch (JMException ex) {
+	    LOG.log(Level.INFO, null, ex);
+	}
+    }
+
+    Sample start(String url) {
+	queries.increment();
+	inFlight.incrementAndGet();
+	return new Sample(url);
+    }
+
+    void memoryHit() {
+	memoryHits.increment();
+    }
+
+    void storeHit() {
+	storeHits.increment();
+    }
+
+    void hedged() {
+	hedges.increment();
+    }
+
+    void retried() {
+	retries.increment();
+    }
+
+    void rejected() {
+	rejected.increment();
+    }
+
+    /**
+     * A single search. Network phases are reported by OkHttp on the thread
+     * executing the call, the rest by the caller on the same thread.
+     */
+    final class Sample extends EventListener {
+
+	private final String url;
+	private final long start = System.nanoTime();
+	private long dnsStart;
+	private long dnsTime = -1;
+	private long connectStart;
+	private long connectTime = -1;
+	private long headersEnd;
+	private long bytesRead;
+	private int docCount;
+	private boolean responded;
+	private boolean fromCache;
+
+	private Sample(String url) {
+	    this.url = url;
+	}
+
+	/**
+	 * The response headers are available.
+	 */
+	void responded(Response response) {
+	    responded = true;
+	    Response network = response.networkResponse();
+	    fromCache = network == null;
+	    //the network response still has the headers OkHttp strips when inflating
+	    if (network != null && network.code() == 200 && !"gzip".equalsIgnoreCase(network.header("Content-Encoding"))) { //NOI18N
+		uncompressed.increment();
+		if (uncompressedLogged.compareAndSet(false, true)) {
+		    LOG.log(Level.INFO, "Uncompressed response for {0}, a proxy may be dropping gzip", url); //NOI18N
+		}
+	    }
+	    if (headersEnd == 0) {
+		//served from the cache, OkHttp reports no network events
+		headersEnd = System.nanoTime();
+	    }
+	}
+
+	void doc() {
+	    docCount++;
+	}
+
+	/**
+	 * @return the bytes of the response body received so far, as
+	 * transferred; 0 when it came from the HTTP cache
+	 */
+	long getBytesRead() {
+	    return bytesRead;
+	}
+
+	void finish(boolean success) {
+	    long end = System.nanoTime();
+	    inFlight.decrementAndGet();
+	    if (!success) {
+		failures.increment();
+	    }
+	    if (responded) {
+		(fromCache ? httpCacheHits : httpNetwork).increment();
+	    }
+	    bytes.add(bytesRead);
+	    docs.add(docCount);
+
+	    long totalTime = micros(end - start);
+	    long firstByteTime = headersEnd == 0 ? -1 : micros(headersEnd - start);
+	    long bodyTime = headersEnd == 0 ? -1 : micros(end - headersEnd);
+	    dns.record(dnsTime);
+	    connect.record(connectTime);
+	    firstByte.record(firstByteTime);
+	    body.record(bodyTime);
+	    total.record(totalTime);
+
+	    long threshold = slowQueryThreshold;
+	    if (threshold > 0 && totalTime >= threshold * 1000) {
+		LOG.log(Level.INFO, "Slow Maven central query {0}: {1} ms (dns {2} us, connect {3} us, first byte {4} us, body {5} us), {6} bytes, {7} docs, cached {8}", //NOI18N
+			new Object[]{url, totalTime / 1000, dnsTime, connectTime, firstByteTime, bodyTime, bytesRead, docCount, fromCache});
+	    }
+	}
+
+	@Override
+	public void dnsStart(Call call, String domainName) {
+	    dnsStart = System.nanoTime();
+	}
+
+	@Override
+	public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+	    dnsTime = micros(System.nanoTime() - dnsStart);
+	}
+
+	@Override
+	public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+	    connectStart = System.nanoTime();
+	}
+
+	@Override
+	public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+	    connectTime = micros(System.nanoTime() - connectStart);
+	}
+
+	@Override
+	public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol, IOException ioe) {
+	    connectTime = micros(System.nanoTime() - connectStart);
+	}
+
+	@Override
+	public void responseHeadersEnd(Call call, Response response) {
+	    headersEnd = System.nanoTime();
+	}
+
+	@Override
+	public void responseBodyEnd(Call call, long byteCount) {
+	    bytesRead += byteCount;
+	}
+    }
+
+    private static long micros(long nanos) {
+	return nanos / 1000;
+    }
+
+    @Override
+    public long getQueryCount() {
+	return queries.sum();
+    }
+
+    @Override
+    public long getFailureCount() {
+	return failures.sum();
+    }
+
+    @Override
+    public int getInFlightCount() {
+	return inFlight.get();
+    }
+
+    @Override
+    public long getBytesRead() {
+	return bytes.sum();
+    }
+
+    @Override
+    public long getDocCount() {
+	return docs.sum();
+    }
+
+    @Override
+    public long getMemoryCacheHitCount() {
+	return memoryHits.sum();
+    }
+
+    @Override
+    public long getStoreHitCount() {
+	return storeHits.sum();
+    }
+
+    @Override
+    public long getHttpCacheHitCount() {
+	return httpCacheHits.sum();
+    }
+
+    @Override
+    public long getHttpNetworkCount() {
+	return httpNetwork.sum();
+    }
+
+    @Override
+    public long getUncompressedResponseCount() {
+	return uncompressed.sum();
+    }
+
+    @Override
+    public long getHedgeCount() {
+	return hedges.sum();
+    }
+
+    @Override
+    public long getRetryCount() {
+	return retries.sum();
+    }
+
+    @Override
+    public long getRejectedCount() {
+	return rejected.sum();
+    }
+
+    @Override
+    public LatencySnapshot getDnsTime() {
+	return LatencySnapshot.of(dns);
+    }
+
+    @Override
+    public LatencySnapshot getConnectTime() {
+	return LatencySnapshot.of(connect);
+    }
+
+    @Override
+    public LatencySnapshot getFirstByteTime() {
+	return LatencySnapshot.of(firstByte);
+    }
+
+    @Override
+    public LatencySnapshot getBodyTime() {
+	return LatencySnapshot.of(body);
+    }
+
+    @Override
+    public LatencySnapshot getTotalTime() {
+	return LatencySnapshot.of(total);
+    }
+
+    @Override
+    public long getSlowQueryThreshold() {
+	return slowQueryThreshold;
+    }
+
+    @Override
+    public void setSlowQueryThreshold(long millis) {
+	slowQueryThreshold = millis;
+    }
+
+    @Override
+    public void reset() {
+	for (LongAdder a : new LongAdder[]{queries, failures, bytes, docs, memoryHits, storeHits, httpCacheHits, httpNetwork, uncompressed, hedges, retries, rejected}) {
+	    a.reset();
+	}
+	for (Histogram h : new Histogram[]{dns, connect, firstByte, body, total}) {
+	    h.reset();
+	}
+    }
+}
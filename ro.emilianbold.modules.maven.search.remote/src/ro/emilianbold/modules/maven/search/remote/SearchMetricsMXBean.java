@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+/**
+ * Management view of the Maven central searches, registered as
+ * {@value SearchMetrics#OBJECT_NAME}. Durations are in milliseconds.
+ */
+public interface SearchMetricsMXBean {
+
+    /**
+     * Searches sent to the server, including failed ones.
+     */
+    long getQueryCount();
+
+    long getFailureCount();
+
+    int getInFlightCount();
+
+    long getBytesRead();
+
+    long getDocCount();
+
+    /**
+     * Result pages served from memory without touching the disk or network.
+     */
+    long getMemoryCacheHitCount();
+
+    /**
+     * Result pages served from the persistent result store.
+     */
+    long getStoreHitCount();
+
+    /**
+     * Responses served by the OkHttp disk cache without a network request.
+     */
+    long getHttpCacheHitCount();
+
+    /**
+     * Responses which needed a network request, including revalidations.
+     */
+    long getHttpNetworkCount();
+
+    /**
+     * Network responses which were not gzip encoded, eg. because a proxy
+     * recompressed or stripped them.
+     */
+    long getUncompressedResponseCount();
+
+    /**
+     * Second calls sent because the first one was slower than usual.
+     */
+    long getHedgeCount();
+
+    long getRetryCount();
+
+    /**
+     * Searches answered from the cache only because the circuit breaker was
+     * open.
+     */
+    long getRejectedCount();
+
+    LatencySnapshot getDnsTime();
+
+    LatencySnapshot getConnectTime();
+
+    /**
+     * From the start of the call until the response headers are read.
+     */
+    LatencySnapshot getFirstByteTime();
+
+    /**
+     * Reading and parsing the response body. The body is parsed while it is
+     * streamed so download and parse time are not separable.
+     */
+    LatencySnapshot getBodyTime();
+
+    LatencySnapshot getTotalTime();
+
+    /**
+     * Searches slower than this are logged with their timings, 0 disables
+     * the log.
+     */
+    long getSlowQueryThreshold();
+
+    void setSlowQueryThreshold(long millis);
+
+    void reset();
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.util.Collections;
+import java.util.List;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+
+/**
+ * One window of a Solr search: the decoded documents plus the total number of
+ * documents matching the query.
+ */
+/* package protected */ final class SearchPage {
+
+    static final SearchPage EMPTY = new SearchPage(0, 0, Collections.<NBVersionInfo>emptyList());
+
+    private final long numFound;
+    private final int docCount;
+    private final List<NBVersionInfo> infos;
+    private final long wireBytes;
+
+    SearchPage(long numFound, int docCount, List<NBVersionInfo> infos) {
+	this(numFound, docCount, infos, 0);
+    }
+
+    SearchPage(long numFound, int docCount, List<NBVersionInfo> infos, long wireBytes) {
+	this.numFound = numFound;
+	this.docCount = docCount;
+	this.infos = Collections.unmodifiableList(infos);
+	this.wireBytes = wireBytes;
+    }
+
+    /**
+     * @return number of documents matching the query, across all pages
+     */
+    public long getNumFound() {
+	return numFound;
+    }
+
+    /**
+     * @return number of documents in this page. Each document may yield
+     * several infos, one per classifier/extension.
+     */
+    public int getDocCount() {
+	return docCount;
+    }
+
+    public List<NBVersionInfo> getInfos() {
+	return infos;
+    }
+
+    /**
+     * @return bytes transferred over the network to fetch this page, 0 if it
+     * was not fetched, eg. read from the store or the HTTP cache. Not stored.
+     */
+    long getWireBytes() {
+	return wireBytes;
+    }
+
+    /**
+     * @return rough estimate of the heap retained by this page, in bytes
+     */
+    long estimateSize() {
+	long size = 64;
+	for (NBVersionInfo info : infos) {
+	    size += 96
+		    + estimateSize(info.getGroupId())
+		    + estimateSize(info.getArtifactId())
+		    + estimateSize(info.getVersion())
+		    + estimateSize(info.getType())
+		    + estimateSize(info.getPackaging())
+		    + estimateSize(info.getProjectName())
+		    + estimateSize(info.getClassifier());
+	}
+	return size;
+    }
+
+    private static long estimateSize(String s) {
+	return s == null ? 0 : 40 + 2 * s.length();
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import okhttp3.Call;
+
+/**
+ * Table of in-flight requests: concurrent callers asking for the same key share
+ * one network round trip and one parse.
+ *
+ * Each caller waits at most a bounded time and stops waiting when interrupted
+ * or when a newer request from the same source supersedes it. The underlying
+ * OkHttp call is cancelled once the last caller has left.
+ */
+/* package protected */ final class SingleFlight<V> {
+
+    interface Loader<V> {
+
+	/**
+         * @return the value or null on failure
+         */
+	V load(Flight flight);
+    }
+
+    /**
+     * A shared request. The loader attaches its OkHttp calls (there may be
+     * retries and hedged calls) so they can be cancelled when nobody is
+     * waiting anymore.
+     */
+    static final class Flight {
+
+	private final AtomicInteger waiters = new AtomicInteger(1);
+	private final CompletableFuture<Object> result = new CompletableFuture<>();
+	private QueryScheduler.Task task;
+	private final List<Call> calls = new CopyOnWriteArrayList<>();
+	private volatile boolean cancelled;
+
+	void attach(Call call) {
+	    calls.add(call);
+	    if (cancelled) {
+		call.cancel();
+	    }
+	}
+
+	boolean isCancelled() {
+	    return cancelled;
+	}
+
+	private boolean join() {
+	    while (true) {
+		int w = waiters.get();
+		if (w <= 0) {
+		    return false;
+		}
+		if (waiters.compareAndSet(w, w + 1)) {
+		    return true;
+		}
+	    }
+	}
+
+	private boolean leave() {
+	    if (waiters.decrementAndGet() == 0 && !result.isDone()) {
+		cancelled = true;
+		calls.forEach(Call::cancel);
+		return true;
+	    }
+	    return false;
+	}
+    }
+
+    private static final Object SUPERSEDED = new Object();
+
+    private final ConcurrentHashMap<String, Flight> flights = new ConcurrentHashMap<>();
+    //the latest waiter of each source
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> sources = new ConcurrentHashMap<>();
+    private final QueryScheduler scheduler;
+    private final long waitMillis;
+
+    SingleFlight(String name, int throughput, int debounceMillis, long waitMillis) {
+	this.scheduler = new QueryScheduler(name, throughput, debounceMillis);
+	this.waitMillis = waitMillis;
+    }
+
+    /**
+     * Runs {@code loader} unless a request for {@code key} is already in flight,
+     * in which case its result is shared.
+     *
+     * @param source identifies where the request comes from, eg. a completion
+     * field; a newer request from the same source supersedes this one, which
+     * then returns null right away. Requests with a source are debounced.
+     * Null if the request should always run to the end.
+     * @return the value or null on failure, timeout, interruption or when
+     * superseded
+     */
+    @SuppressWarnings("unchecked")
+    V execute(final String key, final QueryScheduler.Priority priority, final String source, final Loader<V> loader) {
+	CompletableFuture<Object> waiter = new CompletableFuture<>();
+	if (source != null) {
+	    CompletableFuture<Object> previous = sources.put(source, waiter);
+	    if (previous != null) {
+		previous.complete(SUPERSEDED);
+	    }
+	}
+
+	Flight flight;
+	while (true) {
+	    flight = flights.get(key);
+	    if (flight != null && flight.join()) {
+		synchronized (flight) {
+		    if (flight.task != null) {
+			flight.task.promote(priority);
+		    }
+		}
+		break;
+	    }
+	    //no flight or an abandoned one which is about to be removed
+	    Flight created = new Flight();
+	    boolean installed = flight == null ? flights.putIfAbsent(key, created) == null : flights.replace(key, flight, created);
+	    if (installed) {
+		flight = created;
+		start(key, created, priority, source != null, loader);
+		break;
+	    }
+	}
+	flight.result.whenComplete((Object value, Throwable ex) -> {
+	    if (ex != null) {
+		waiter.completeExceptionally(ex);
+	    } else {
+		waiter.complete(value);
+	    }
+	});
+
+	try {
+	    Object value = waiter.get(waitMillis, TimeUnit.MILLISECONDS);
+	    if (value == SUPERSEDED) {
+		Logger.getLogger(SingleFlight.class.getName()).log(Level.FINE, "Superseded {0}", key); //NOI18N
+		return null;
+	    }
+	    return (V) value;
+	} catch (TimeoutException ex) {
+	    Logger.getLogger(SingleFlight.class.getName()).log(Level.INFO, "Gave up waiting for {0}", key); //NOI18N
+	} catch (InterruptedException ex) {
+	    Thread.currentThread().interrupt();
+	} catch (ExecutionException ex) {
+	    Logger.getLogger(SingleFlight.class.getName()).log(Level.WARNING, null, ex.getCause());
+	} finally {
+	    if (source != null) {
+		sources.remove(source, waiter);
+	    }
+	    if (flight.leave()) {
+		flights.remove(key, flight);
+	    }
+	}
+	return null;
+    }
+
+    private void start(final String key, final Flight flight, QueryScheduler.Priority priority, boolean debounce, final Loader<V> loader) {
+	QueryScheduler.Task task = scheduler.submit(() -> {
+	    try {
+		flight.result.complete(flight.isCancelled() ? null : loader.load(flight));
+	    } catch (RuntimeException ex) {
+		flight.result.completeExceptionally(ex);
+	    } finally {
+		flights.remove(key, flight);
+	    }
+	}, priority, debounce);
+	synchronized (flight) {
+	    flight.task = task;
+	}
+    }
+}
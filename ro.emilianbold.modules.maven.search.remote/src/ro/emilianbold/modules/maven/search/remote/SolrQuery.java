@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Builds search.maven.org Solr query strings. Clauses are combined with AND.
+ *
+ * Parameters are always emitted in the same (alphabetical) order, so equal
+ * queries produce equal strings which can be used as cache keys directly.
+ * They do not include the endpoint, see {@link SearchEndpoints}.
+ */
+/* package protected */ final class SolrQuery {
+
+    private static final String AND = "%20AND%20"; //NOI18N
+    private static final String OR = "%20OR%20"; //NOI18N
+    private static final String QUOTE = "%22"; //NOI18N
+
+    private final StringBuilder query = new StringBuilder(64);
+    private String core;
+    private String fields;
+    private int rows = -1;
+    private String sort;
+
+    /**
+     * Searches the given core, eg. {@code gav} for one document per version
+     * instead of one per artifact.
+     */
+    SolrQuery core(String core) {
+	this.core = core;
+	return this;
+    }
+
+    /**
+     * Restricts the returned fields, eg. {@code g,a}.
+     */
+    SolrQuery fields(String fields) {
+	this.fields = fields;
+	return this;
+    }
+
+    SolrQuery rows(int rows) {
+	this.rows = rows;
+	return this;
+    }
+
+    /**
+     * Orders the documents on the server, eg. {@code timestamp desc}.
+     */
+    SolrQuery sort(String sort) {
+	this.sort = sort;
+	return this;
+    }
+
+    /**
+     * Adds {@code field:"value"}.
+     */
+    SolrQuery phrase(String field, String value) {
+	and().append(field).append(':').append(QUOTE).append(encode(value)).append(QUOTE);
+	return this;
+    }
+
+    /**
+     * Adds {@code field:prefix*}; nothing for an empty prefix.
+     */
+    SolrQuery prefix(String field, String prefix) {
+	if (!prefix.isEmpty()) {
+	    and().append(field).append(':').append(encode(escape(prefix))).append('*');
+	}
+	return this;
+    }
+
+    /**
+     * Adds {@code (field:"v1" OR field:"v2" ...)}.
+     */
+    SolrQuery anyPhrase(String field, List<String> values) {
+	and().append("%28"); //NOI18N
+	for (int i = 0; i < values.size(); i++) {
+	    if (i > 0) {
+		query.append(OR);
+	    }
+	    query.append(field).append(':').append(QUOTE).append(encode(values.get(i))).append(QUOTE);
+	}
+	query.append("%29"); //NOI18N
+	return this;
+    }
+
+    /**
+     * Adds {@code ((clauses of q1) OR (clauses of q2) ...)}, eg. to look up
+     * several coordinates with one request. Only the clauses of the
+     * alternatives are used, not their core, fields or rows.
+     */
+    SolrQuery anyOf(List<SolrQuery> alternatives) {
+	and().append("%28"); //NOI18N
+	for (int i = 0; i < alternatives.size(); i++) {
+	    if (i > 0) {
+		query.append(OR);
+	    }
+	    query.append("%28").append(alternatives.get(i).query).append("%29"); //NOI18N
+	}
+	query.append("%29"); //NOI18N
+	return this;
+    }
+
+    /**
+     * Adds free text, searched in the default fields.
+     */
+    SolrQuery text(String text) {
+	and().append(encode(text));
+	return this;
+    }
+
+    /**
+     * @return the length of the encoded {@code q} parameter
+     */
+    int length() {
+	return query.length();
+    }
+
+    boolean isEmpty() {
+	return query.length() == 0;
+    }
+
+    String toQuery() {
+	return toQuery(-1, rows);
+    }
+
+    /**
+     * @return the query string of the documents {@code [start, start + rows)}
+     */
+    String toQuery(int start, int rows) {
+	StringBuilder sb = new StringBuilder(query.length() + 64);
+	if (core != null) {
+	    sb.append("core=").append(core).append('&'); //NOI18N
+	}
+	if (fields != null) {
+	    sb.append("fl=").append(fields).append('&'); //NOI18N
+	}
+	sb.append("q=").append(query); //NOI18N
+	if (rows >= 0) {
+	    sb.append("&rows=").append(rows); //NOI18N
+	}
+	if (sort != null) {
+	    sb.append("&sort=").append(encode(sort)); //NOI18N
+	}
+	if (start >= 0) {
+	    sb.append("&start=").append(start); //NOI18N
+	}
+	sb.append("&wt=json"); //NOI18N
+	return sb.toString();
+    }
+
+    private StringBuilder and() {
+	if (query.length() > 0) {
+	    query.append(AND);
+	}
+	return query;
+    }
+
+    /**
+     * Escapes the Lucene query syntax characters so {@code s} can be used as
+     * an unquoted term, eg. before a {@code *} wildcard.
+     */
+    static String escape(String s) {
+	StringBuilder sb = new StringBuilder(s.length() + 8);
+	for (int i = 0; i < s.length(); i++) {
+	    char c = s.charAt(i);
+	    if ("\\+-!():^[]\"{}~*?|&/ ".indexOf(c) != -1) { //NOI18N
+		sb.append('\\');
+	    }
+	    sb.append(c);
+	}
+	return sb.toString();
+    }
+
+    static String encode(String s) {
+	try {
+	    return URLEncoder.encode(s, "UTF-8"); //NOI18N
+	} catch (UnsupportedEncodingException ex) {
+	    //UTF-8 should always(?) be a supported encoding
+	    Logger.getLogger(SolrQuery.class.getName()).log(Level.SEVERE, null, ex);
+	    return ""; //NOI18N
+	}
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.json.simple.parser.ContentHandler;
+
+/**
+ * Event based reader for the search.maven.org Solr JSON response.
+ *
+ * Only the entries of {@code response.docs} are materialized and only one at a
+ * time: each document is handed to the {@link DocHandler} as soon as its
+ * closing brace is read and the holder, including its array values, is then
+ * reused for the next one.
+ */
+/* package protected */ class SolrResponseParser implements ContentHandler {
+
+    /**
+     * Receives the documents of a response, in order.
+     */
+    interface DocHandler {
+
+	/**
+         * @param doc the current document, only valid for the duration of the
+         * call
+         */
+	void doc(SolrDoc doc);
+    }
+
+    /**
+     * A single Solr document. Primitive values are kept as strings, arrays as
+     * lists of strings.
+     */
+    static final class SolrDoc {
+
+	private final Map<String, Object> fields = new HashMap<>();
+	//array values are recycled together with the document
+	private final List<List<String>> lists = new ArrayList<>();
+	private int listsUsed;
+
+	public String get(String field) {
+	    Object o = fields.get(field);
+	    return o instanceof String ? (String) o : null;
+	}
+
+	@SuppressWarnings("unchecked")
+	public List<String> getList(String field) {
+	    Object o = fields.get(field);
+	    return o instanceof List ? (List<String>) o : null;
+	}
+
+	void clear() {
+	    fields.clear();
+	    listsUsed = 0;
+	}
+
+	List<String> newList() {
+	    if (listsUsed == lists.size()) {
+		lists.add(new ArrayList<>());
+	    }
+	    List<String> list = lists.get(listsUsed++);
+	    list.clear();
+	    return list;
+	}
+    }
+
+    private static final int DOC_DEPTH = 4; //root object, response object, docs array, doc object
+
+    private final DocHandler handler;
+    private final SolrDoc doc = new SolrDoc();
+
+    private int depth;
+    private String key;
+    private boolean inResponse;
+    private boolean inDocs;
+    private List<String> array;
+    //nested objects reset key, the array keeps its own
+    private String arrayKey;
+    private long numFound = -1;
+
+    public SolrResponseParser(DocHandler handler) {
+	this.handler = handler;
+    }
+
+    /**
+     * @return the {@code response.numFound} value or -1 if not (yet) seen
+     */
+    public long getNumFound() {
+	return numFound;
+    }
+
+    @Override
+    public void startJSON() {
+	depth = 0;
+	key = null;
+	inResponse = false;
+	inDocs = false;
+	array = null;
+	arrayKey = null;
+	numFound = -1;
+    }
+
+    @Override
+    public void endJSON() {
+    }
+
+    @Override
+    public boolean startObject() {
+	depth++;
+	if (depth == 2 && "response".equals(key)) { //NOI18N
+	    inResponse = true;
+	} else if (depth == DOC_DEPTH && inDocs) {
+	    doc.clear();
+	}
+	key = null;
+	return true;
+    }
+
+    @Override
+    public boolean endObject() {
+	if (depth == DOC_DEPTH && inDocs) {
+	    handler.doc(doc);
+	} else if (depth == 2) {
+	    inResponse = false;
+	}
+	depth--;
+	return true;
+    }
+
+    @Override
+    public boolean startObjectEntry(String key) {
+	this.key = key;
+	return true;
+    }
+
+    @Override
+    public boolean endObjectEntry() {
+	key = null;
+	return true;
+    }
+
+    @Override
+    public boolean startArray() {
+	depth++;
+	if (depth == 3 && inResponse && "docs".equals(key)) { //NOI18N
+	    inDocs = true;
+	} else if (depth == DOC_DEPTH + 1 && inDocs && key != null) {
+	    array = doc.newList();
+	    arrayKey = key;
+	}
+	return true;
+    }
+
+    @Override
+    public boolean endArray() {
+	if (depth == 3) {
+	    inDocs = false;
+	} else if (array != null && depth == DOC_DEPTH + 1) {
+	    doc.fields.put(arrayKey, array);
+	    array = null;
+	    arrayKey = null;
+	}
+	depth--;
+	return true;
+    }
+
+    @Override
+    public boolean primitive(Object value) {
+	if (value == null) {
+	    return true;
+	}
+	if (depth == DOC_DEPTH && inDocs && key != null) {
+	    doc.fields.put(key, String.valueOf(value));
+	} else if (depth == DOC_DEPTH + 1 && array != null) {
+	    array.add(String.valueOf(value));
+	} else if (depth == 2 && inResponse && "numFound".equals(key) && value instanceof Number) { //NOI18N
+	    numFound = ((Number) value).longValue();
+	}
+	return true;
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+/**
+ * Bounded, lossy string canonicalizer. Each string maps to one slot of a fixed
+ * table; a hit returns the pooled instance, a miss replaces the slot. There are
+ * no locks: racing writers only lose a canonicalization, never correctness.
+ *
+ * Unlike {@link String#intern()} nothing is kept beyond the table size.
+ */
+/* package protected */ final class StringPool {
+
+    private final String[] table;
+    private final int mask;
+
+    /**
+     * @param size rounded up to a power of two
+     */
+    StringPool(int size) {
+	int capacity = Integer.highestOneBit(Math.max(16, size - 1)) << 1;
+	table = new String[capacity];
+	mask = capacity - 1;
+    }
+
+    String intern(String s) {
+	if (s == null) {
+	    return null;
+	}
+	int h = s.hashCode();
+	int slot = (h ^ (h >>> 16)) & mask;
+	String pooled = table[slot];
+	if (pooled != null && pooled.equals(s)) {
+	    return pooled;
+	}
+	table[slot] = s;
+	return s;
+    }
+}
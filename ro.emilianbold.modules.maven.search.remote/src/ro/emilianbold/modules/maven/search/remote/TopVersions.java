@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+import ro.emilianbold.modules.maven.search.remote.MavenVersionComparator.Version;
+
+/**
+ * Keeps the records of the {@code limit} newest versions, in
+ * {@link MavenVersionComparator} order, out of any number added. Older
+ * versions are dropped as soon as they fall out of the heap, so memory
+ * follows the limit and not the number of versions of the artifact. Each
+ * version is parsed once when it is first added. Not thread safe.
+ */
+/* package protected */ final class TopVersions {
+
+    private final int limit;
+    //oldest first, to be evicted
+    private final PriorityQueue<Version> heap;
+    private final Map<String, List<NBVersionInfo>> byVersion;
+
+    /**
+     * @param limit the number of distinct versions to keep, 1 for the newest
+     * only
+     */
+    TopVersions(int limit) {
+	this.limit = limit;
+	this.heap = new PriorityQueue<>(limit + 1);
+	this.byVersion = new HashMap<>(limit * 4 / 3 + 1);
+    }
+
+    /**
+     * Adds a record. Records with the same version, type and classifier as
+     * one added before, eg. from another repository, are ignored.
+     */
+    void add(NBVersionInfo info) {
+	String version = info.getVersion();
+	List<NBVersionInfo> records = byVersion.get(version);
+	if (records != null) {
+	    for (NBVersionInfo r : records) {
+		if (same(r.getType(), info.getType()) && same(r.getClassifier(), info.getClassifier())) {
+		    return;
+		}
+	    }
+	    records.add(info);
+	    return;
+	}
+	Version parsed = new Version(version);
+	if (!accepts(parsed)) {
+	    return;
+	}
+	if (heap.size() == limit) {
+	    byVersion.remove(heap.poll().getVersion());
+	}
+	heap.add(parsed);
+	records = new ArrayList<>(2);
+	records.add(info);
+	byVersion.put(version, records);
+    }
+
+    void addAll(List<NBVersionInfo> infos) {
+	for (NBVersionInfo info : infos) {
+	    add(info);
+	}
+    }
+
+    /**
+     * @return whether records of {@code version} would be kept
+     */
+    boolean accepts(String version) {
+	return byVersion.containsKey(version) || accepts(new Version(version));
+    }
+
+    private boolean accepts(Version version) {
+	return heap.size() < limit || version.compareTo(heap.peek()) > 0;
+    }
+
+    /**
+     * @return the kept records, newest version first
+     */
+    List<NBVersionInfo> toList() {
+	List<Version> versions = new ArrayList<>(heap);
+	versions.sort(Collections.reverseOrder());
+	List<NBVersionInfo> result = new ArrayList<>(byVersion.size() + 4);
+	for (Version version : versions) {
+	    result.addAll(byVersion.get(version.getVersion()));
+	}
+	return result;
+    }
+
+    private static boolean same(String s1, String s2) {
+	return s1 == null ? s2 == null : s1.equals(s2);
+    }
+}
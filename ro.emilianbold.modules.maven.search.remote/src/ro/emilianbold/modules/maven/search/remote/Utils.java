@@ -26,18 +26,51 @@
  */
 package ro.emilianbold.modules.maven.search.remote;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
 import org.netbeans.modules.maven.indexer.api.RepositoryInfo;
 import org.netbeans.modules.maven.indexer.spi.ResultImplementation;
 
 public class Utils {
 
+    //comma separated URLs of repositories mirroring Central, eg. an in-house repository manager
+    private static final List<String> MIRRORS = mirrors(System.getProperty("maven.search.remote.mirrors", "")); //NOI18N
+
     public static boolean isCentral(RepositoryInfo r) {
 	boolean handle = "central".equals(r.getId()) && !r.isLocal() && !r.isMirror() && (r.getRepositoryUrl() != null && r.getRepositoryUrl().contains("repo.maven.apache.org")); //NOI18N
 
-	return handle;
+	return handle || isCentralMirror(r);
+    }
+
+    /**
+     * A configured mirror of Central, whatever its id: it has the same
+     * contents so the Central search answers for it too.
+     */
+    private static boolean isCentralMirror(RepositoryInfo r) {
+	if (r.isLocal() || r.getRepositoryUrl() == null || MIRRORS.isEmpty()) {
+	    return false;
+	}
+	return MIRRORS.contains(stripSlash(r.getRepositoryUrl()));
+    }
+
+    private static List<String> mirrors(String urls) {
+	List<String> l = new ArrayList<>();
+	for (String url : SearchEndpoints.parse(urls)) {
+	    l.add(stripSlash(url));
+	}
+	return l;
+    }
+
+    static String stripSlash(String url) {
+	return url.endsWith("/") ? url.substring(0, url.length() - 1) : url; //NOI18N
     }
 
     public static ResultImplementation<String> emptyString() {
@@ -76,4 +109,96 @@ public class Utils {
 	    }
 	};
     }
+
+    /**
+     * The distinct values of {@code field}, in the order they first occur,
+     * eg. the artifactIds of search records. Null values and the ones
+     * {@code filter} rejects are left out.
+     */
+    static List<String> distinct(List<NBVersionInfo> infos, Function<NBVersionInfo, String> field, Predicate<String> filter) {
+	return infos
+		.stream()
+		.map(field)
+		.filter(s -> s != null && filter.test(s))
+		.distinct()
+		.collect(Collectors.toList());
+    }
+
+    /**
+     * @return a copy of {@code infos}, newest version first in Maven version
+     * order
+     */
+    static List<NBVersionInfo> newestFirst(List<NBVersionInfo> infos) {
+	//parsed once each, records of one version share the key
+	Map<String, MavenVersionComparator.Version> keys = new HashMap<>();
+	List<NBVersionInfo> sorted = new ArrayList<>(infos);
+	sorted.sort(Comparator.comparing((NBVersionInfo info) -> keys.computeIfAbsent(info.getVersion(), MavenVersionComparator.Version::new)).reversed());
+	return sorted;
+    }
+
+    /**
+     * @return {@code infos} as found in the repository {@code repoId}: the
+     * same list if they already are, otherwise copies. Repositories searched
+     * through the same endpoints, eg. Central and its mirrors, share one
+     * search and its results are relabeled for the one asked for.
+     */
+    static List<NBVersionInfo> withRepository(List<NBVersionInfo> infos, String repoId) {
+	int i = 0;
+	while (i < infos.size() && repoId.equals(infos.get(i).getRepoId())) {
+	    i++;
+	}
+	if (i == infos.size()) {
+	    return infos;
+	}
+	List<NBVersionInfo> relabeled = new ArrayList<>(infos.size());
+	for (NBVersionInfo info : infos) {
+	    relabeled.add(repoId.equals(info.getRepoId()) ? info : new NBVersionInfo(repoId,
+		    info.getGroupId(), info.getArtifactId(), info.getVersion(),
+		    info.getType(), info.getPackaging(),
+		    info.getProjectName(), info.getProjectDescription(), info.getClassifier()));
+	}
+	return relabeled;
+    }
+
+    /**
+     * Derived result which applies {@code function} to the results of
+     * {@code source}. It stays partial as long as the source is partial.
+     */
+    public static <S, T> ResultImplementation<T> transform(final ResultImplementation<S> source, final Function<List<S>, List<T>> function) {
+	return new ResultImplementation<T>() {
+	    private List<S> sourceResults;
+	    private List<T> results;
+
+	    @Override
+	    public boolean isPartial() {
+		return source.isPartial();
+	    }
+
+	    @Override
+	    public void waitForSkipped() {
+		source.waitForSkipped();
+	    }
+
+	    @Override
+	    public synchronized List<T> getResults() {
+		List<S> current = source.getResults();
+		if (results == null || current != sourceResults) {
+		    results = function.apply(current);
+		    sourceResults = current;
+		}
+		return results;
+	    }
+
+	    @Override
+	    public int getTotalResultCount() {
+		//while partial the source count is only an upper bound
+		return isPartial() ? Math.max(source.getTotalResultCount(), getReturnedResultCount()) : getReturnedResultCount();
+	    }
+
+	    @Override
+	    public int getReturnedResultCount() {
+		return getResults().size();
+	    }
+	};
+    }
 }
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+import ro.emilianbold.modules.maven.search.remote.SolrResponseParser.SolrDoc;
+
+/**
+ * Turns Solr documents into {@link NBVersionInfo}s.
+ *
+ * The coordinates repeat a lot across documents (a {@code core=gav} page lists
+ * hundreds of versions of the same artifact) and the results are kept in the
+ * caches, so the repeated values are canonicalized through a shared
+ * {@link StringPool}. An instance is meant for one response and is not thread
+ * safe.
+ *
+ * Fields missing from a document are null, not the string {@code "null"}.
+ * Searches with {@code fl=g,a} thus give infos without version, packaging
+ * and project name (the document id). Such infos are only read for their
+ * coordinates, never handed to the IDE as versions: {@code NBVersionInfo}
+ * does not sort without groupId, artifactId and version. Documents without
+ * groupId or artifactId are skipped.
+ */
+/* package protected */ final class VersionInfoDecoder {
+
+    private static final StringPool POOL = new StringPool(Integer.getInteger("maven.search.remote.intern.size", 4096)); //NOI18N
+
+    //"ec":["-sources.jar","-javadoc.jar",".jar",".pom"]
+    private static final Pattern EXTENSION_CLASSIFIER = Pattern.compile("^(-([^\\.]+))*\\.(.*)$"); //NOI18N
+
+    private final String repoId;
+    private final Matcher matcher = EXTENSION_CLASSIFIER.matcher(""); //NOI18N
+
+    VersionInfoDecoder(String repoId) {
+	this.repoId = repoId;
+    }
+
+    void decode(SolrDoc doc, List<NBVersionInfo> infos) {
+	int found = 0;
+
+	String groupId = POOL.intern(doc.get("g")); //NOI18N
+	String artifactId = POOL.intern(doc.get("a")); //NOI18N
+	if (groupId == null || artifactId == null) {
+	    return;
+	}
+	String version = doc.get("latestVersion"); //NOI18N
+	if (version == null) {
+	    version = doc.get("v"); //NOI18N
+	}
+	version = POOL.intern(version);
+	String packaging = POOL.intern(doc.get("p")); //NOI18N
+	String id = doc.get("id"); //NOI18N
+
+	List<String> ec = doc.getList("ec"); //NOI18N
+	if (ec != null) {
+	    for (int i = 0; i < ec.size(); i++) {
+		if (matcher.reset(ec.get(i)).matches()) {
+		    String classifier = matcher.group(2);
+
+		    if ("javadoc".equals(classifier) || "sources".equals(classifier)) { //NOI18N
+			continue;
+		    }
+
+		    infos.add(new NBVersionInfo(
+			    repoId,
+			    groupId, artifactId, version,
+			    POOL.intern(matcher.group(3)),
+			    packaging,
+			    id, null, POOL.intern(classifier)));
+		    found++;
+		}
+	    }
+	}
+
+	if (found == 0) {
+	    infos.add(new NBVersionInfo(
+		    repoId,
+		    groupId, artifactId, version,
+		    //guesswork
+		    "jar", //NOI18N
+		    packaging,
+		    id, null, null));
+	}
+    }
+}
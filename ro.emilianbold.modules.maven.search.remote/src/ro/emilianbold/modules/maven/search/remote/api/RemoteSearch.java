@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote.api;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+import org.netbeans.modules.maven.indexer.api.RepositoryInfo;
+import org.netbeans.modules.maven.indexer.spi.RepositoryIndexQueryProvider;
+import org.netbeans.modules.maven.indexer.spi.ResultImplementation;
+import org.openide.util.Lookup;
+import ro.emilianbold.modules.maven.search.remote.MavenCentralOnlineRepositoryIndexQueryProvider;
+
+/**
+ * Entry point of the remote search API. All methods block while searching,
+ * do not call them from the event dispatch thread.
+ *
+ * <p>
+ * Only the repositories handled by the remote search take part, ie. Central
+ * and the ones configured with {@code maven.search.remote.federated}. The
+ * others of {@code repos} are ignored.
+ *
+ * @since 1.2
+ */
+public final class RemoteSearch {
+
+    private RemoteSearch() {
+    }
+
+    /**
+     * Every version of many artifacts with a few requests instead of one
+     * search each, eg. to look for updates of all the dependencies of a
+     * project.
+     *
+     * @param groupArtifactIds {@code groupId:artifactId} pairs
+     * @param repos the repositories to search, in resolution order
+     * @return the versions by {@code groupId:artifactId}, in the given order;
+     * pairs whose lookup failed are missing
+     */
+    public static Map<String, List<NBVersionInfo>> getVersions(Collection<String> groupArtifactIds, List<RepositoryInfo> repos) {
+	MavenCentralOnlineRepositoryIndexQueryProvider provider = provider();
+	if (provider == null) {
+	    return Collections.emptyMap();
+	}
+	return provider.getVersions(groupArtifactIds, repos);
+    }
+
+    /**
+     * The newest versions of an artifact, newest first in Maven version
+     * order. Unlike listing every version only about {@code limit} versions
+     * are transferred, and the latest release is always among them.
+     *
+     * @param limit the number of distinct versions, 1 for the newest only,
+     * 0 for all of them
+     * @param repos the repositories to search, in resolution order
+     * @return one record per version, classifier and type; empty if the
+     * artifact is unknown or the search failed
+     */
+    public static List<NBVersionInfo> getNewestVersions(String groupId, String artifactId, int limit, List<RepositoryInfo> repos) {
+	MavenCentralOnlineRepositoryIndexQueryProvider provider = provider();
+	if (provider == null) {
+	    return Collections.emptyList();
+	}
+	ResultImplementation<NBVersionInfo> versions = provider.getNewestVersions(groupId, artifactId, limit, repos);
+	versions.waitForSkipped();
+	return versions.getResults();
+    }
+
+    /**
+     * Identifies many files, eg. the jars of a project without a POM, by
+     * their SHA-1 on Central. The lookups are combined into a few requests
+     * and shared with concurrent ones.
+     *
+     * @return the matching artifacts of each file, in the given order, empty
+     * if unknown; files that could not be read are missing
+     */
+    public static Map<File, List<NBVersionInfo>> findByFiles(Collection<File> files) {
+	MavenCentralOnlineRepositoryIndexQueryProvider provider = provider();
+	if (provider == null) {
+	    return Collections.emptyMap();
+	}
+	return provider.findByFiles(files);
+    }
+
+    /**
+     * @return the registered provider, null if it was removed from the
+     * default lookup
+     */
+    private static MavenCentralOnlineRepositoryIndexQueryProvider provider() {
+	for (RepositoryIndexQueryProvider p : Lookup.getDefault().lookupAll(RepositoryIndexQueryProvider.class)) {
+	    if (p instanceof MavenCentralOnlineRepositoryIndexQueryProvider) {
+		return (MavenCentralOnlineRepositoryIndexQueryProvider) p;
+	    }
+	}
+	return null;
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CoordinateIndexTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static NBVersionInfo info(String groupId, String artifactId) {
+	return new NBVersionInfo("central", groupId, artifactId, "1.0", "jar", "jar", null, null, null); //NOI18N
+    }
+
+    private static int generations(File folder) {
+	return folder.listFiles((File dir, String name) -> name.endsWith(".idx")).length; //NOI18N
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+	CoordinateIndex index = new CoordinateIndex(tmp.getRoot());
+	assertTrue(index.isEmpty());
+	assertEquals(Arrays.asList(), index.getGroups("", 10)); //NOI18N
+	assertEquals(Arrays.asList(), index.getArtifacts("junit", "", 10)); //NOI18N
+    }
+
+    @Test
+    public void testPrefixQueries() throws Exception {
+	CoordinateIndex index = new CoordinateIndex(tmp.getRoot());
+	index.learn(Arrays.asList(
+		info("org.apache.maven.plugins", "maven-compiler-plugin"),
+		info("org.apache.maven.plugins", "maven-compiler-plugin"),
+		info("org.apache.maven.plugins", "maven-clean-plugin"),
+		info("org.apache.maven.plugins", "maven-surefire-plugin"),
+		info("org.apache.maven", "maven-core"),
+		info("org.apache.commons", "commons-lang3"),
+		info("junit", "junit"),
+		info("org.example", null)));
+	//pending entries
+	assertPrefixQueries(index);
+
+	index.flushAndWait();
+	//mapped entries
+	assertPrefixQueries(index);
+	assertEquals(1, generations(tmp.getRoot()));
+    }
+
+    private static void assertPrefixQueries(CoordinateIndex index) {
+	assertFalse(index.isEmpty());
+	assertEquals(Arrays.asList("junit", "org.apache.commons", "org.apache.maven", "org.apache.maven.plugins", "org.example"), index.getGroups("", 10)); //NOI18N
+	assertEquals(Arrays.asList("org.apache.maven", "org.apache.maven.plugins"), index.getGroups("org.apache.m", 10)); //NOI18N
+	assertEquals(Arrays.asList("junit", "org.apache.commons"), index.getGroups("", 2)); //NOI18N
+	assertEquals(Arrays.asList(), index.getGroups("com.", 10)); //NOI18N
+
+	assertEquals(Arrays.asList("maven-clean-plugin", "maven-compiler-plugin", "maven-surefire-plugin"), index.getArtifacts("org.apache.maven.plugins", "", 10)); //NOI18N
+	assertEquals(Arrays.asList("maven-clean-plugin", "maven-compiler-plugin"), index.getArtifacts("org.apache.maven.plugins", "maven-c", 10)); //NOI18N
+	assertEquals(Arrays.asList("maven-clean-plugin"), index.getArtifacts("org.apache.maven.plugins", "maven-c", 1)); //NOI18N
+	//not the artifacts of org.apache.maven.plugins
+	assertEquals(Arrays.asList("maven-core"), index.getArtifacts("org.apache.maven", "", 10)); //NOI18N
+	assertEquals(Arrays.asList(), index.getArtifacts("org.example", "", 10)); //NOI18N
+    }
+
+    @Test
+    public void testFlushAndReopen() throws Exception {
+	CoordinateIndex index = new CoordinateIndex(tmp.getRoot());
+	index.learn(Arrays.asList(info("junit", "junit"), info("org.hamcrest", "hamcrest-core")));
+	index.flushAndWait();
+	index.learn(Arrays.asList(info("junit", "junit-dep"), info("com.google.guava", "guava")));
+	index.flushAndWait();
+	assertEquals(1, generations(tmp.getRoot()));
+
+	CoordinateIndex reopened = new CoordinateIndex(tmp.getRoot());
+	assertEquals(Arrays.asList("com.google.guava", "junit", "org.hamcrest"), reopened.getGroups("", 10)); //NOI18N
+	assertEquals(Arrays.asList("junit", "junit-dep"), reopened.getArtifacts("junit", "", 10)); //NOI18N
+	assertTrue(reopened.lastModified() > 0);
+
+	//merged into the reopened generation
+	reopened.learn(Arrays.asList(info("junit", "junit-addons")));
+	reopened.flushAndWait();
+	assertEquals(Arrays.asList("junit", "junit-addons", "junit-dep"), new CoordinateIndex(tmp.getRoot()).getArtifacts("junit", "", 10)); //NOI18N
+	assertEquals(1, generations(tmp.getRoot()));
+    }
+
+    @Test
+    public void testImportDump() throws Exception {
+	File dump = tmp.newFile("dump.txt"); //NOI18N
+	Files.write(dump.toPath(), Arrays.asList("junit:junit:4.12", "org.example", "", "org.example:lib", "junit:junit:4.11"), StandardCharsets.UTF_8); //NOI18N
+	File folder = tmp.newFolder();
+	new CoordinateIndex(folder).importDump(dump);
+
+	CoordinateIndex reopened = new CoordinateIndex(folder);
+	assertEquals(Arrays.asList("junit", "org.example"), reopened.getGroups("", 10)); //NOI18N
+	assertEquals(Arrays.asList("lib"), reopened.getArtifacts("org.example", "", 10)); //NOI18N
+    }
+
+    @Test
+    public void testConcurrentLearnAndFlush() throws Exception {
+	CoordinateIndex index = new CoordinateIndex(tmp.getRoot());
+	int threads = 4;
+	int perThread = 3000;
+	CountDownLatch start = new CountDownLatch(1);
+	List<Thread> learners = new ArrayList<>();
+	for (int t = 0; t < threads; t++) {
+	    final int thread = t;
+	    Thread learner = new Thread(() -> {
+		try {
+		    start.await();
+		} catch (InterruptedException ex) {
+		    return;
+		}
+		//small batches, every FLUSH_THRESHOLD entries schedule a flush
+		for (int i = 0; i < perThread; i += 10) {
+		    List<NBVersionInfo> batch = new ArrayList<>();
+		    for (int j = i; j < i + 10; j++) {
+			batch.add(info("g" + thread, String.format("a%05d", j))); //NOI18N
+		    }
+		    index.learn(batch);
+		}
+	    });
+	    learner.start();
+	    learners.add(learner);
+	}
+	Thread flusher = new Thread(() -> {
+	    try {
+		start.await();
+	    } catch (InterruptedException ex) {
+		return;
+	    }
+	    for (int i = 0; i < 20; i++) {
+		index.flushAndWait();
+	    }
+	});
+	flusher.start();
+
+	start.countDown();
+	for (Thread learner : learners) {
+	    learner.join();
+	}
+	flusher.join();
+	index.flushAndWait();
+
+	assertEquals(1, generations(tmp.getRoot()));
+	for (CoordinateIndex i : Arrays.asList(index, new CoordinateIndex(tmp.getRoot()))) {
+	    assertEquals(Arrays.asList("g0", "g1", "g2", "g3"), i.getGroups("", 10)); //NOI18N
+	    for (int t = 0; t < threads; t++) {
+		List<String> artifactIds = i.getArtifacts("g" + t, "", Integer.MAX_VALUE); //NOI18N
+		assertEquals(perThread, artifactIds.size());
+		assertEquals("a00000", artifactIds.get(0)); //NOI18N
+		assertEquals(String.format("a%05d", perThread - 1), artifactIds.get(perThread - 1)); //NOI18N
+	    }
+	    assertEquals(Arrays.asList("a02990", "a02991"), i.getArtifacts("g2", "a0299", 2)); //NOI18N
+	}
+    }
+
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+import org.netbeans.modules.maven.indexer.api.QueryField;
+import org.netbeans.modules.maven.indexer.api.RepositoryInfo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class FederatedSearchTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private SolrStandIn standIn;
+    private FederatedSearch search;
+    private RepositoryInfo central;
+    private RepositoryInfo mirror;
+
+    @Before
+    public void setUp() throws Exception {
+	standIn = new SolrStandIn();
+	standIn.setNumFound(10);
+	OkHttpClient client = new OkHttpClient.Builder().build();
+	SearchEndpoints endpoints = new SearchEndpoints(Collections.singletonList(standIn.getURL()), client, new SearchMetrics());
+	MavenCentralGenericFindQuery query = new MavenCentralGenericFindQuery("central", endpoints, new PersistentResultStore(tmp.newFile(), 1024 * 1024), null, new SearchMetrics()); //NOI18N
+	//the same endpoints, the same search
+	search = new FederatedSearch((RepositoryInfo r) -> query);
+	central = new RepositoryInfo("central", "Central Repository", null, "https://repo.maven.apache.org/maven2/"); //NOI18N
+	mirror = new RepositoryInfo("mirror", "Central Mirror", null, "https://mirror.example.org/maven2/"); //NOI18N
+    }
+
+    @After
+    public void tearDown() {
+	standIn.close();
+    }
+
+    private List<NBVersionInfo> find(RepositoryInfo... repos) {
+	QueryField g = new QueryField();
+	g.setField(QueryField.FIELD_GROUPID);
+	g.setValue("org.example"); //NOI18N
+	QueryField a = new QueryField();
+	a.setField(QueryField.FIELD_ARTIFACTID);
+	a.setValue("example-core"); //NOI18N
+	return search.find(Arrays.asList(g, a), Arrays.asList(repos)).getResults();
+    }
+
+    @Test
+    public void testSharedSearchSentOnce() {
+	List<NBVersionInfo> infos = find(mirror, central);
+	assertEquals(1, standIn.getRequestCount());
+	assertFalse(infos.isEmpty());
+	//from the first repository the caller listed
+	for (NBVersionInfo info : infos) {
+	    assertEquals("mirror", info.getRepoId()); //NOI18N
+	}
+
+	for (NBVersionInfo info : find(central)) {
+	    assertEquals("central", info.getRepoId()); //NOI18N
+	}
+	assertEquals(1, standIn.getRequestCount());
+    }
+}
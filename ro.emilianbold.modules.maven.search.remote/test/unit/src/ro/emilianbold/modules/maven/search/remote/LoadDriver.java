@@ -0,0 +1,240 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMX;
+import javax.management.ObjectName;
+import org.netbeans.modules.maven.indexer.api.QueryField;
+import org.netbeans.modules.maven.indexer.api.RepositoryInfo;
+import org.netbeans.modules.maven.indexer.spi.BaseQueries;
+import org.netbeans.modules.maven.indexer.spi.GenericFindQuery;
+import org.netbeans.modules.maven.indexer.spi.ResultImplementation;
+
+/**
+ * Runs concurrent IDE-like searches through the provider against a
+ * {@link SolrStandIn}, then reports latency percentiles, throughput, bytes
+ * read and cache hit ratios. No network access is needed.
+ *
+ * Run the main method with the test classpath of the module; it is tuned
+ * with system properties:
+ * <ul>
+ * <li>{@code load.threads} concurrent callers, 8</li>
+ * <li>{@code load.seconds} duration, 30</li>
+ * <li>{@code load.latency} and {@code load.jitter} of the stand-in in
+ * milliseconds, 50 and 50</li>
+ * <li>{@code load.errors} percentage of failed requests, 1</li>
+ * <li>{@code load.docs} documents matching each query, 500</li>
+ * </ul>
+ * The {@code maven.search.remote.*} properties of the module apply as
+ * usual.
+ */
+public final class LoadDriver {
+
+    private static final int THREADS = Integer.getInteger("load.threads", 8); //NOI18N
+    private static final int SECONDS = Integer.getInteger("load.seconds", 30); //NOI18N
+    private static final int LATENCY = Integer.getInteger("load.latency", 50); //NOI18N
+    private static final int JITTER = Integer.getInteger("load.jitter", 50); //NOI18N
+    private static final int ERRORS = Integer.getInteger("load.errors", 1); //NOI18N
+    private static final int DOCS = Integer.getInteger("load.docs", 500); //NOI18N
+
+    //a few popular artifacts get most of the searches, like in the IDE
+    private static final int GROUPS = 50;
+    private static final int ARTIFACTS = 10;
+
+    /**
+     * The searches of the IDE, with their share of the load in percent.
+     */
+    private enum Operation {
+	VERSIONS(40), ARTIFACTS(20), RECORDS(20), NAME(15), PACKAGING(5);
+
+	private final int share;
+
+	Operation(int share) {
+	    this.share = share;
+	}
+    }
+
+    private LoadDriver() {
+    }
+
+    public static void main(String[] args) throws Exception {
+	File userdir = Files.createTempDirectory("load").toFile(); //NOI18N
+	try (SolrStandIn standIn = new SolrStandIn()) {
+	    standIn.setLatency(LATENCY, JITTER);
+	    standIn.setErrorRate(ERRORS / 100.0);
+	    standIn.setNumFound(DOCS);
+	    //read when the module starts: caches go to a fresh user directory
+	    System.setProperty("maven.search.remote.url", standIn.getURL()); //NOI18N
+	    System.setProperty("netbeans.user", userdir.getPath()); //NOI18N
+
+	    MavenCentralOnlineRepositoryIndexQueryProvider provider = new MavenCentralOnlineRepositoryIndexQueryProvider();
+	    List<RepositoryInfo> repos = Collections.singletonList(new RepositoryInfo("central", "Central Repository", null, "https://repo.maven.apache.org/maven2/")); //NOI18N
+	    BaseQueries base = provider.getBaseQueries();
+	    GenericFindQuery find = provider.getGenericFindQuery();
+
+	    Map<Operation, List<Long>> latencies = new EnumMap<>(Operation.class);
+	    for (Operation op : Operation.values()) {
+		latencies.put(op, Collections.synchronizedList(new ArrayList<>()));
+	    }
+	    LongAdder failures = new LongAdder();
+	    long start = System.nanoTime();
+	    long deadline = start + TimeUnit.SECONDS.toNanos(SECONDS);
+
+	    ExecutorService callers = Executors.newFixedThreadPool(THREADS);
+	    List<Future<?>> running = new ArrayList<>();
+	    for (int i = 0; i < THREADS; i++) {
+		Random random = new Random(i);
+		running.add(callers.submit(() -> {
+		    while (System.nanoTime() < deadline) {
+			Operation op = pick(random);
+			long t0 = System.nanoTime();
+			try {
+			    search(op, random, base, find, repos).getResults();
+			} catch (RuntimeException ex) {
+			    failures.increment();
+			}
+			latencies.get(op).add(System.nanoTime() - t0);
+		    }
+		}));
+	    }
+	    for (Future<?> f : running) {
+		f.get();
+	    }
+	    double elapsed = (System.nanoTime() - start) / 1e9;
+	    callers.shutdown();
+
+	    report(latencies, failures.sum(), elapsed, standIn);
+	}
+	System.exit(0);
+    }
+
+    private static Operation pick(Random random) {
+	int r = random.nextInt(100);
+	for (Operation op : Operation.values()) {
+	    r -= op.share;
+	    if (r < 0) {
+		return op;
+	    }
+	}
+	return Operation.VERSIONS;
+    }
+
+    private static ResultImplementation<?> search(Operation op, Random random, BaseQueries base, GenericFindQuery find, List<RepositoryInfo> repos) {
+	int g = skewed(random, GROUPS);
+	String groupId = "org.example.group" + g; //NOI18N
+	String artifactId = "artifact" + skewed(random, ARTIFACTS); //NOI18N
+	switch (op) {
+	    case VERSIONS:
+		return base.getVersions(groupId, artifactId, repos);
+	    case ARTIFACTS:
+		return base.getArtifacts(groupId, repos);
+	    case RECORDS:
+		return base.getRecords(groupId, artifactId, "1.0." + random.nextInt(5), repos); //NOI18N
+	    case NAME:
+		QueryField name = new QueryField();
+		name.setField(QueryField.FIELD_NAME);
+		name.setValue(artifactId + ' ' + g);
+		return find.find(Collections.singletonList(name), repos);
+	    default:
+		return base.getGAVsForPackaging("maven-archetype", repos); //NOI18N
+	}
+    }
+
+    /**
+     * @return 0 to {@code count - 1}, the low ones much more often
+     */
+    private static int skewed(Random random, int count) {
+	double r = random.nextDouble();
+	return (int) (count * r * r * r);
+    }
+
+    private static void report(Map<Operation, List<Long>> latencies, long failures, double elapsed, SolrStandIn standIn) throws Exception {
+	System.out.printf("%d threads for %.1f s, stand-in latency %d+%d ms, %d%% errors, %d documents per query%n", //NOI18N
+		THREADS, elapsed, LATENCY, JITTER, ERRORS, DOCS);
+	System.out.printf("%-10s %8s %9s %9s %9s%n", "search", "count", "p50 ms", "p90 ms", "p99 ms"); //NOI18N
+	List<Long> all = new ArrayList<>();
+	for (Map.Entry<Operation, List<Long>> e : latencies.entrySet()) {
+	    all.addAll(e.getValue());
+	    row(e.getKey().name().toLowerCase(Locale.ENGLISH), e.getValue());
+	}
+	row("all", all); //NOI18N
+	System.out.printf("throughput %.1f searches/s, %d failed with an exception%n", all.size() / elapsed, failures); //NOI18N
+
+	SearchMetricsMXBean metrics = JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(), new ObjectName(SearchMetrics.OBJECT_NAME), SearchMetricsMXBean.class);
+	System.out.printf("stand-in: %d requests, %d failed, %.1f MB sent%n", //NOI18N
+		standIn.getRequestCount(), standIn.getFailureCount(), standIn.getBytesServed() / 1e6);
+	System.out.printf("module: %d queries, %d failed, %d hedged, %d retried, %.1f MB read, %d documents%n", //NOI18N
+		metrics.getQueryCount(), metrics.getFailureCount(), metrics.getHedgeCount(), metrics.getRetryCount(),
+		metrics.getBytesRead() / 1e6, metrics.getDocCount());
+	long lookups = metrics.getMemoryCacheHitCount() + metrics.getStoreHitCount() + metrics.getQueryCount();
+	long http = metrics.getHttpCacheHitCount() + metrics.getHttpNetworkCount();
+	System.out.printf("page lookups: %.1f%% memory, %.1f%% store, %.1f%% server; HTTP cache %.1f%% of %d responses%n", //NOI18N
+		percent(metrics.getMemoryCacheHitCount(), lookups), percent(metrics.getStoreHitCount(), lookups),
+		percent(metrics.getQueryCount(), lookups), percent(metrics.getHttpCacheHitCount(), http), http);
+    }
+
+    private static void row(String name, List<Long> nanos) {
+	long[] sorted = new long[nanos.size()];
+	for (int i = 0; i < sorted.length; i++) {
+	    sorted[i] = nanos.get(i);
+	}
+	Arrays.sort(sorted);
+	System.out.printf("%-10s %8d %9.1f %9.1f %9.1f%n", name, sorted.length, //NOI18N
+		percentile(sorted, 0.5), percentile(sorted, 0.9), percentile(sorted, 0.99));
+    }
+
+    /**
+     * @return the value at {@code p} in milliseconds, nearest rank
+     */
+    private static double percentile(long[] sorted, double p) {
+	if (sorted.length == 0) {
+	    return 0;
+	}
+	int rank = (int) Math.ceil(p * sorted.length);
+	return sorted[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    private static double percent(long part, long whole) {
+	return whole == 0 ? 0 : 100.0 * part / whole;
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+import org.netbeans.modules.maven.indexer.api.RepositoryInfo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class MavenCentralBatchQueriesTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private SolrStandIn standIn;
+    private MavenCentralGenericFindQuery query;
+    private List<RepositoryInfo> repos;
+
+    @Before
+    public void setUp() throws Exception {
+	standIn = new SolrStandIn();
+	OkHttpClient client = new OkHttpClient.Builder().build();
+	SearchMetrics metrics = new SearchMetrics();
+	SearchEndpoints endpoints = new SearchEndpoints(Collections.singletonList(standIn.getURL()), client, metrics);
+	query = new MavenCentralGenericFindQuery("central", endpoints, new PersistentResultStore(tmp.newFile(), 16 * 1024 * 1024), null, metrics); //NOI18N
+	repos = Collections.singletonList(new RepositoryInfo("central", "Central Repository", null, "https://repo.maven.apache.org/maven2/")); //NOI18N
+    }
+
+    @After
+    public void tearDown() {
+	standIn.close();
+    }
+
+    @Test
+    public void testBroadBatchIsCapped() {
+	//every coordinate has far more versions than a search returns
+	standIn.setNumFound(2 * PagedResult.MAX_RESULTS + 5000);
+	List<String> coordinates = Arrays.asList("org.example:a", "org.example:b"); //NOI18N
+	Map<String, List<NBVersionInfo>> versions = new MavenCentralBatchQueries((RepositoryInfo r) -> query).getVersions(coordinates, repos);
+	assertEquals(coordinates, Arrays.asList(versions.keySet().toArray()));
+	assertFalse(versions.get("org.example:a").isEmpty()); //NOI18N
+	assertFalse(versions.get("org.example:b").isEmpty()); //NOI18N
+	//the combined first page, then each coordinate on its own up to the cap
+	//200 rows a page
+	int pages = (PagedResult.MAX_RESULTS + 199) / 200;
+	assertEquals(1 + 2 * pages, standIn.getRequestCount());
+
+	//the pages are cached by the search, not only by the batch
+	new MavenCentralBatchQueries((RepositoryInfo r) -> query).getVersions(coordinates, repos);
+	assertEquals(1 + 2 * pages, standIn.getRequestCount());
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+import org.netbeans.modules.maven.indexer.api.RepositoryInfo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MavenCentralChecksumQueriesTest {
+
+    static {
+	//read once, when the class under test is loaded
+	System.setProperty("maven.search.remote.checksum.miss.ttl", "1"); //NOI18N
+    }
+
+    private static final String KNOWN = "0123456789abcdef0123456789abcdef01234567"; //NOI18N
+    private static final String UNKNOWN = "fedcba9876543210fedcba9876543210fedcba98"; //NOI18N
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private String known = KNOWN;
+    private MavenCentralChecksumQueries queries;
+
+    @Before
+    public void setUp() throws IOException {
+	OkHttpClient client = new OkHttpClient.Builder()
+		.addInterceptor((okhttp3.Interceptor.Chain chain) -> {
+		    requests.incrementAndGet();
+		    boolean found = chain.request().url().toString().contains(known);
+		    String json = "{\"response\":{\"numFound\":" + (found ? 1 : 0) + ",\"start\":0,\"docs\":[" //NOI18N
+			    + (found ? "{\"id\":\"org.example:a:1.0\",\"g\":\"org.example\",\"a\":\"a\",\"v\":\"1.0\",\"p\":\"jar\",\"ec\":[\".jar\"],\"1\":\"" + known + "\"}" : "") //NOI18N
+			    + "]}}"; //NOI18N
+		    return new Response.Builder()
+			    .request(chain.request())
+			    .protocol(Protocol.HTTP_1_1)
+			    .code(200)
+			    .message("OK") //NOI18N
+			    .body(ResponseBody.create(MediaType.parse("application/json"), json)) //NOI18N
+			    .build();
+		})
+		.build();
+	SearchMetrics metrics = new SearchMetrics();
+	SearchEndpoints endpoints = new SearchEndpoints(Collections.singletonList("http://localhost/solrsearch/select"), client, metrics); //NOI18N
+	PersistentResultStore store = new PersistentResultStore(tmp.newFile(), 1024 * 1024);
+	queries = new MavenCentralChecksumQueries(new MavenCentralGenericFindQuery("central", endpoints, store, null, metrics), store); //NOI18N
+    }
+
+    private List<NBVersionInfo> find(String sha) {
+	return queries.findBySHA1(sha, null).getResults();
+    }
+
+    @Test
+    public void testHitsAreKept() throws Exception {
+	assertEquals("a", find(KNOWN.toUpperCase()).get(0).getArtifactId()); //NOI18N
+	assertEquals(1, requests.get());
+	Thread.sleep(1100);
+	assertEquals(1, find(KNOWN).size());
+	assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void testMissesExpire() throws Exception {
+	assertTrue(find(UNKNOWN).isEmpty());
+	assertTrue(find(UNKNOWN).isEmpty());
+	assertEquals(1, requests.get());
+	//published in the meantime
+	known = UNKNOWN;
+	Thread.sleep(1100);
+	assertEquals(1, find(UNKNOWN).size());
+	assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void testOtherRepositories() throws Exception {
+	RepositoryInfo central = new RepositoryInfo("central", "Central Repository", null, "https://repo.maven.apache.org/maven2/"); //NOI18N
+	RepositoryInfo other = new RepositoryInfo("other", "Other Repository", null, "https://repo.example.org/maven2/"); //NOI18N
+	assertTrue(queries.findBySHA1(KNOWN, Collections.singletonList(other)).getResults().isEmpty());
+	assertEquals(0, requests.get());
+
+	List<NBVersionInfo> found = queries.findBySHA1(KNOWN, Arrays.asList(other, central)).getResults();
+	assertEquals(1, found.size());
+	assertEquals("central", found.get(0).getRepoId()); //NOI18N
+	assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void testFilesShareTheLookups() throws Exception {
+	File a = tmp.newFile();
+	File b = tmp.newFile();
+	File c = tmp.newFile();
+	Files.write(a.toPath(), "a".getBytes(StandardCharsets.UTF_8)); //NOI18N
+	Files.write(b.toPath(), "b".getBytes(StandardCharsets.UTF_8)); //NOI18N
+	Files.write(c.toPath(), "a".getBytes(StandardCharsets.UTF_8)); //NOI18N
+	known = MavenCentralChecksumQueries.sha1(a);
+	assertEquals("86f7e437faa5a7fce15d1ddcb9eaeaea377667b8", known); //NOI18N
+
+	Map<File, List<NBVersionInfo>> found = queries.findByFiles(Arrays.asList(a, b, c));
+	assertEquals(Arrays.asList(a, b, c), Arrays.asList(found.keySet().toArray()));
+	assertEquals(1, found.get(a).size());
+	assertTrue(found.get(b).isEmpty());
+	assertEquals(1, found.get(c).size());
+	//one batch for both checksums
+	assertEquals(1, requests.get());
+
+	//the same cache as single lookups
+	assertEquals(1, find(known).size());
+	assertEquals(1, requests.get());
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.netbeans.modules.maven.indexer.api.NBGroupInfo;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+import org.netbeans.modules.maven.indexer.api.QueryField;
+import org.netbeans.modules.maven.indexer.api.RepositoryInfo;
+import org.netbeans.modules.maven.indexer.spi.ResultImplementation;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class MavenCentralDependencyInfoQueriesTest {
+
+    private static String pom(String artifactId, String importedArtifactId) {
+	return "<project><modelVersion>4.0.0</modelVersion>" //NOI18N
+		+ "<groupId>org.example</groupId><artifactId>" + artifactId + "</artifactId><version>1.0</version>" //NOI18N
+		+ "<packaging>pom</packaging>" //NOI18N
+		+ "<dependencyManagement><dependencies>" //NOI18N
+		+ "<dependency><groupId>org.example</groupId><artifactId>" + importedArtifactId + "</artifactId>" //NOI18N
+		+ "<version>1.0</version><type>pom</type><scope>import</scope></dependency>" //NOI18N
+		+ "<dependency><groupId>org.example</groupId><artifactId>managed-by-" + artifactId + "</artifactId>" //NOI18N
+		+ "<version>2.0</version></dependency>" //NOI18N
+		+ "</dependencies></dependencyManagement>" //NOI18N
+		+ "<dependencies><dependency><groupId>org.example</groupId><artifactId>managed-by-" + importedArtifactId + "</artifactId></dependency></dependencies>" //NOI18N
+		+ "</project>"; //NOI18N
+    }
+
+    /**
+     * Serves POMs from memory; each answer waits until {@code together} POMs
+     * were requested.
+     */
+    private static OkHttpClient client(Map<String, String> poms, CountDownLatch together, Map<String, Integer> requests) {
+	return new OkHttpClient.Builder()
+		.addInterceptor((okhttp3.Interceptor.Chain chain) -> {
+		    String path = chain.request().url().encodedPath();
+		    String name = path.substring(path.lastIndexOf('/') + 1);
+		    requests.merge(name, 1, Integer::sum);
+		    together.countDown();
+		    try {
+			together.await(5, TimeUnit.SECONDS);
+		    } catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		    }
+		    String pom = poms.get(name);
+		    return new Response.Builder()
+			    .request(chain.request())
+			    .protocol(Protocol.HTTP_1_1)
+			    .code(pom != null ? 200 : 404)
+			    .message(pom != null ? "OK" : "Not Found") //NOI18N
+			    .body(ResponseBody.create(MediaType.parse("text/xml"), pom != null ? pom : "")) //NOI18N
+			    .build();
+		})
+		.build();
+    }
+
+    @Test
+    public void testImportCycleFromBothEnds() throws Exception {
+	Map<String, String> poms = new ConcurrentHashMap<>();
+	poms.put("a-1.0.pom", pom("a", "b")); //NOI18N
+	poms.put("b-1.0.pom", pom("b", "a")); //NOI18N
+	Map<String, Integer> requests = new ConcurrentHashMap<>();
+	//a and b are both in flight before either imports the other
+	MavenCentralDependencyInfoQueries queries = new MavenCentralDependencyInfoQueries(client(poms, new CountDownLatch(2), requests), null);
+
+	CompletableFuture<MavenCentralDependencyInfoQueries.Model> a = queries.resolve("org.example", "a", "1.0"); //NOI18N
+	CompletableFuture<MavenCentralDependencyInfoQueries.Model> b = queries.resolve("org.example", "b", "1.0"); //NOI18N
+
+	//well before the timeout for unfinished lookups
+	MavenCentralDependencyInfoQueries.Model modelA = a.get(10, TimeUnit.SECONDS);
+	MavenCentralDependencyInfoQueries.Model modelB = b.get(10, TimeUnit.SECONDS);
+	assertNotNull(modelA);
+	assertNotNull(modelB);
+	//one of them imported the other, the cycle was cut on the other end
+	assertTrue(modelA.dependsOn("org.example", "managed-by-b", "2.0") || modelB.dependsOn("org.example", "managed-by-a", "2.0")); //NOI18N
+	assertEquals(Integer.valueOf(1), requests.get("a-1.0.pom")); //NOI18N
+	assertEquals(Integer.valueOf(1), requests.get("b-1.0.pom")); //NOI18N
+
+	//cached, nothing left in flight
+	assertTrue(queries.resolve("org.example", "a", "1.0").isDone()); //NOI18N
+	assertTrue(queries.resolve("org.example", "b", "1.0").isDone()); //NOI18N
+    }
+
+    @Test
+    public void testSharedAndMissing() throws Exception {
+	Map<String, String> poms = new ConcurrentHashMap<>();
+	poms.put("a-1.0.pom", pom("a", "b")); //NOI18N
+	poms.put("b-1.0.pom", pom("b", "c")); //NOI18N
+	Map<String, Integer> requests = new ConcurrentHashMap<>();
+	MavenCentralDependencyInfoQueries queries = new MavenCentralDependencyInfoQueries(client(poms, new CountDownLatch(0), requests), null);
+
+	CompletableFuture<MavenCentralDependencyInfoQueries.Model> first = queries.resolve("org.example", "b", "1.0"); //NOI18N
+	CompletableFuture<MavenCentralDependencyInfoQueries.Model> a = queries.resolve("org.example", "a", "1.0"); //NOI18N
+	CompletableFuture<MavenCentralDependencyInfoQueries.Model> second = queries.resolve("org.example", "b", "1.0"); //NOI18N
+
+	MavenCentralDependencyInfoQueries.Model modelA = a.get(10, TimeUnit.SECONDS);
+	assertTrue(modelA.dependsOn("org.example", "managed-by-b", "2.0")); //NOI18N
+	assertFalse(modelA.dependsOn("org.example", "managed-by-b", "1.0")); //NOI18N
+	assertNotNull(first.get(10, TimeUnit.SECONDS));
+	assertNotNull(second.get(10, TimeUnit.SECONDS));
+	//b is shared, c is missing
+	assertEquals(Integer.valueOf(1), requests.get("b-1.0.pom")); //NOI18N
+	assertEquals(Integer.valueOf(1), requests.get("c-1.0.pom")); //NOI18N
+    }
+
+    @Test
+    public void testCandidatesCapped() throws Exception {
+	//a release train of 300 modules, every one depends on module-0
+	List<NBVersionInfo> siblings = new ArrayList<>();
+	Map<String, String> poms = new ConcurrentHashMap<>();
+	for (int i = 0; i < 300; i++) {
+	    siblings.add(new NBVersionInfo("central", "org.example", "module-" + i, "1.0", "jar", "jar", null, null, null)); //NOI18N
+	    poms.put("module-" + i + "-1.0.pom", "<project><modelVersion>4.0.0</modelVersion>" //NOI18N
+		    + "<groupId>org.example</groupId><artifactId>module-" + i + "</artifactId><version>1.0</version>" //NOI18N
+		    + "<dependencies><dependency><groupId>org.example</groupId><artifactId>module-0</artifactId>" //NOI18N
+		    + "<version>1.0</version></dependency></dependencies></project>"); //NOI18N
+	}
+	AtomicBoolean skipped = new AtomicBoolean();
+	MavenCentralGenericFindQuery findQuery = new MavenCentralGenericFindQuery("central", null, null, null, null) { //NOI18N
+	    @Override
+	    public ResultImplementation<NBVersionInfo> find(List<QueryField> fields, List<RepositoryInfo> repos) {
+		return new ResultImplementation<NBVersionInfo>() {
+		    @Override
+		    public boolean isPartial() {
+			return true;
+		    }
+
+		    @Override
+		    public void waitForSkipped() {
+			skipped.set(true);
+		    }
+
+		    @Override
+		    public List<NBVersionInfo> getResults() {
+			return siblings;
+		    }
+
+		    @Override
+		    public int getTotalResultCount() {
+			return siblings.size();
+		    }
+
+		    @Override
+		    public int getReturnedResultCount() {
+			return siblings.size();
+		    }
+		};
+	    }
+	};
+	Map<String, Integer> requests = new ConcurrentHashMap<>();
+	MavenCentralDependencyInfoQueries queries = new MavenCentralDependencyInfoQueries(client(poms, new CountDownLatch(0), requests), findQuery);
+
+	List<NBGroupInfo> groups = queries.findDependencyUsageGroups("org.example", "module-0", "1.0", null).getResults(); //NOI18N
+	assertFalse(skipped.get());
+	assertEquals(MavenCentralDependencyInfoQueries.MAX_CANDIDATES, requests.size());
+	assertFalse(requests.containsKey("module-0-1.0.pom")); //NOI18N
+	assertEquals(1, groups.size());
+	//the first modules of the page, not the ones past the cap
+	assertEquals(MavenCentralDependencyInfoQueries.MAX_CANDIDATES, groups.get(0).getArtifactInfos().size());
+	assertEquals("module-1", groups.get(0).getArtifactInfos().get(0).getName()); //NOI18N
+    }
+}
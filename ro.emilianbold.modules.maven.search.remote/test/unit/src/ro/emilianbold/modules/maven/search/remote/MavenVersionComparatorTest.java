@@ -0,0 +1,260 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * The ordering cases of Maven's {@code ComparableVersionTest}.
+ */
+public class MavenVersionComparatorTest {
+
+    private static final String[] VERSIONS_QUALIFIER = {
+	"1-alpha2snapshot", "1-alpha2", "1-alpha-123", "1-beta-2", "1-beta123", "1-m2", "1-m11", "1-rc", "1-cr2", //NOI18N
+	"1-rc123", "1-SNAPSHOT", "1", "1-sp", "1-sp2", "1-sp123", "1-abc", "1-def", "1-pom-1", "1-1-snapshot", //NOI18N
+	"1-1", "1-2", "1-123" //NOI18N
+    };
+
+    private static final String[] VERSIONS_NUMBER = {
+	"2.0", "2.0.a", "2-1", "2.0.2", "2.0.123", "2.1.0", "2.1-a", "2.1b", "2.1-c", "2.1-1", "2.1.0.1", //NOI18N
+	"2.2", "2.123", "11.a2", "11.a11", "11.b2", "11.b11", "11.m2", "11.m11", "11", "11.a", "11b", "11c", "11m" //NOI18N
+    };
+
+    private static int compare(String v1, String v2) {
+	return MavenVersionComparator.INSTANCE.compare(v1, v2);
+    }
+
+    private static void assertOrder(String older, String newer) {
+	assertTrue(older + " < " + newer, compare(older, newer) < 0); //NOI18N
+	assertTrue(newer + " > " + older, compare(newer, older) > 0); //NOI18N
+    }
+
+    private static void assertEqual(String v1, String v2) {
+	assertEquals(v1 + " == " + v2, 0, compare(v1, v2)); //NOI18N
+	assertEquals(v2 + " == " + v1, 0, compare(v2, v1)); //NOI18N
+    }
+
+    private static void assertAscending(String... versions) {
+	for (int i = 0; i < versions.length; i++) {
+	    assertEqual(versions[i], versions[i]);
+	    for (int j = i + 1; j < versions.length; j++) {
+		assertOrder(versions[i], versions[j]);
+	    }
+	}
+    }
+
+    @Test
+    public void testQualifiers() {
+	assertAscending(VERSIONS_QUALIFIER);
+    }
+
+    @Test
+    public void testNumbers() {
+	assertAscending(VERSIONS_NUMBER);
+    }
+
+    @Test
+    public void testEqual() {
+	assertEqual("1", "1"); //NOI18N
+	assertEqual("1", "1.0"); //NOI18N
+	assertEqual("1", "1.0.0"); //NOI18N
+	assertEqual("1.0", "1.0.0"); //NOI18N
+	assertEqual("1", "1-0"); //NOI18N
+	assertEqual("1", "1.0-0"); //NOI18N
+	assertEqual("1.0", "1.0-0"); //NOI18N
+	//no separator between number and character
+	assertEqual("1a", "1-a"); //NOI18N
+	assertEqual("1a", "1.0-a"); //NOI18N
+	assertEqual("1a", "1.0.0-a"); //NOI18N
+	assertEqual("1.0a", "1-a"); //NOI18N
+	assertEqual("1.0.0a", "1-a"); //NOI18N
+	assertEqual("1x", "1-x"); //NOI18N
+	assertEqual("1x", "1.0-x"); //NOI18N
+	assertEqual("1x", "1.0.0-x"); //NOI18N
+	assertEqual("1.0x", "1-x"); //NOI18N
+	assertEqual("1.0.0x", "1-x"); //NOI18N
+	//aliases
+	assertEqual("1ga", "1"); //NOI18N
+	assertEqual("1release", "1"); //NOI18N
+	assertEqual("1final", "1"); //NOI18N
+	assertEqual("1cr", "1rc"); //NOI18N
+	//special "aX" "bX" "mX" = "alpha-X" "beta-X" "milestone-X"
+	assertEqual("1a1", "1-alpha-1"); //NOI18N
+	assertEqual("1b2", "1-beta-2"); //NOI18N
+	assertEqual("1m3", "1-milestone-3"); //NOI18N
+	//case insensitive
+	assertEqual("1X", "1x"); //NOI18N
+	assertEqual("1A", "1a"); //NOI18N
+	assertEqual("1B", "1b"); //NOI18N
+	assertEqual("1M", "1m"); //NOI18N
+	assertEqual("1Ga", "1"); //NOI18N
+	assertEqual("1GA", "1"); //NOI18N
+	assertEqual("1RELEASE", "1"); //NOI18N
+	assertEqual("1RELeaSE", "1"); //NOI18N
+	assertEqual("1Final", "1"); //NOI18N
+	assertEqual("1FINAL", "1"); //NOI18N
+	assertEqual("1Cr", "1Rc"); //NOI18N
+	assertEqual("1cR", "1rC"); //NOI18N
+	assertEqual("1m3", "1Milestone3"); //NOI18N
+	assertEqual("1m3", "1MILESTONE3"); //NOI18N
+    }
+
+    @Test
+    public void testComparing() {
+	assertOrder("1", "2"); //NOI18N
+	assertOrder("1.5", "2"); //NOI18N
+	assertOrder("1", "2.5"); //NOI18N
+	assertOrder("1.0", "1.1"); //NOI18N
+	assertOrder("1.1", "1.2"); //NOI18N
+	assertOrder("1.0.0", "1.1"); //NOI18N
+	assertOrder("1.0.1", "1.1"); //NOI18N
+	assertOrder("1.1", "1.2.0"); //NOI18N
+	assertOrder("1.0-alpha-1", "1.0"); //NOI18N
+	assertOrder("1.0-alpha-1", "1.0-alpha-2"); //NOI18N
+	assertOrder("1.0-alpha-1", "1.0-beta-1"); //NOI18N
+	assertOrder("1.0-beta-1", "1.0-SNAPSHOT"); //NOI18N
+	assertOrder("1.0-SNAPSHOT", "1.0"); //NOI18N
+	assertOrder("1.0-alpha-1-SNAPSHOT", "1.0-alpha-1"); //NOI18N
+	assertOrder("1.0", "1.0-1"); //NOI18N
+	assertOrder("1.0-1", "1.0-2"); //NOI18N
+	assertOrder("1.0.0", "1.0-1"); //NOI18N
+	assertOrder("2.0-1", "2.0.1"); //NOI18N
+	assertOrder("2.0.1-klm", "2.0.1-lmn"); //NOI18N
+	assertOrder("2.0.1", "2.0.1-xyz"); //NOI18N
+	assertOrder("2.0.1", "2.0.1-123"); //NOI18N
+	assertOrder("2.0.1-xyz", "2.0.1-123"); //NOI18N
+    }
+
+    @Test
+    public void testMng5568() {
+	String a = "6.1.0"; //NOI18N
+	String b = "6.1.0rc3"; //NOI18N
+	//the unusual version string, with 'H' in the middle
+	String c = "6.1H.5-beta"; //NOI18N
+	assertOrder(b, a);
+	assertOrder(b, c);
+	assertOrder(a, c);
+    }
+
+    @Test
+    public void testMng7644() {
+	for (String x : new String[] {"abc", "alpha", "a", "beta", "b", "def", "milestone", "m", "RC"}) { //NOI18N
+	    //1.0.0.X1 < 1.0.0-X2 for any string x
+	    assertOrder("1.0.0." + x + "1", "1.0.0-" + x + "2"); //NOI18N
+	    //2.0.X == 2-X == 2.0.0.X for any string x
+	    assertEqual("2-" + x, "2.0." + x); //NOI18N
+	    assertEqual("2-" + x, "2.0.0." + x); //NOI18N
+	    assertEqual("2.0." + x, "2.0.0." + x); //NOI18N
+	}
+    }
+
+    @Test
+    public void testLeadingZeroes() {
+	assertOrder("0.7", "2"); //NOI18N
+	assertOrder("0.2", "1.0.7"); //NOI18N
+	assertEqual("1.007", "1.7"); //NOI18N
+    }
+
+    @Test
+    public void testBigNumbers() {
+	assertOrder("1.2147483647", "1.2147483648"); //NOI18N
+	assertOrder("1.9223372036854775807", "1.9223372036854775808"); //NOI18N
+	assertOrder("20190101", "20190101.1"); //NOI18N
+    }
+
+    @Test
+    public void testSublistNormalization() {
+	//trailing zeros before a qualifier sublist
+	assertEqual("1.0-rc1", "1-rc1"); //NOI18N
+	assertEqual("1.0.0-M1", "1-m1"); //NOI18N
+	assertOrder("1.0.0-M1", "1.0-RC1"); //NOI18N
+	assertOrder("1.0-cr1", "1-sp1"); //NOI18N
+	assertOrder("1.0-alpha", "1"); //NOI18N
+	assertOrder("1", "1-ga-5"); //NOI18N
+	assertOrder("1.0-alpha", "1-ga-5"); //NOI18N
+    }
+
+    @Test
+    public void testNull() {
+	assertEquals(0, compare(null, null));
+	assertOrder(null, ""); //NOI18N
+	assertOrder(null, "1"); //NOI18N
+	assertEqual("", "0"); //NOI18N
+    }
+
+    @Test
+    public void testSortIsConsistent() {
+	List<String> versions = new ArrayList<>();
+	versions.addAll(Arrays.asList(VERSIONS_QUALIFIER));
+	versions.addAll(Arrays.asList(VERSIONS_NUMBER));
+	versions.addAll(Arrays.asList("", "0", "1.0", "1.0-alpha", "1-ga-5", "1.0-rc1", "1-rc1", "1.0.0-M1", "1.0-RC1", //NOI18N
+		"1.0-cr1", "1-sp1", "6.1.0", "6.1.0rc3", "6.1H.5-beta", "1.0.0.Final", "1.0.0.CR1", "3.0-b01")); //NOI18N
+	//transitive, so any sort of any permutation agrees
+	for (String a : versions) {
+	    for (String b : versions) {
+		for (String c : versions) {
+		    if (compare(a, b) <= 0 && compare(b, c) <= 0) {
+			assertTrue(a + " <= " + c, compare(a, c) <= 0); //NOI18N
+		    }
+		}
+	    }
+	}
+	Random random = new Random(42);
+	List<String> sorted = new ArrayList<>(versions);
+	sorted.sort(MavenVersionComparator.INSTANCE.reversed());
+	for (int i = 0; i < 20; i++) {
+	    Collections.shuffle(versions, random);
+	    versions.sort(MavenVersionComparator.INSTANCE.reversed());
+	    for (int j = 0; j < sorted.size(); j++) {
+		assertEquals(0, compare(sorted.get(j), versions.get(j)));
+	    }
+	}
+    }
+
+    @Test
+    public void testParsedVersions() {
+	List<String> versions = new ArrayList<>(Arrays.asList(VERSIONS_NUMBER));
+	versions.add(null);
+	Collections.shuffle(versions, new Random(7));
+	List<MavenVersionComparator.Version> parsed = new ArrayList<>();
+	for (String v : versions) {
+	    parsed.add(new MavenVersionComparator.Version(v));
+	}
+	versions.sort(MavenVersionComparator.INSTANCE);
+	Collections.sort(parsed);
+	for (int i = 0; i < versions.size(); i++) {
+	    assertEquals(versions.get(i), parsed.get(i).getVersion());
+	}
+    }
+}
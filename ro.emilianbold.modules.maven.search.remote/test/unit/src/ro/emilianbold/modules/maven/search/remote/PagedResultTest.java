@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+import org.netbeans.modules.maven.indexer.spi.ResultImplementation;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class PagedResultTest {
+
+    //maven.search.remote.page.size
+    private static final int PAGE_SIZE = 500;
+
+    private static SearchPage page(long numFound, int start, int rows) {
+	List<NBVersionInfo> infos = new ArrayList<>(rows);
+	for (int i = start; i < start + rows; i++) {
+	    infos.add(new NBVersionInfo("central", "g", "a" + i, "1", "jar", "jar", null, null, null)); //NOI18N
+	}
+	return new SearchPage(numFound, rows, infos);
+    }
+
+    @Test
+    public void testAllPages() {
+	ResultImplementation<NBVersionInfo> r = PagedResult.create((int start, int rows) -> page(1200, start, Math.min(rows, 1200 - start)), 50);
+	assertTrue(r.isPartial());
+	assertEquals(50, r.getReturnedResultCount());
+	r.waitForSkipped();
+	assertFalse(r.isPartial());
+	assertEquals(1200, r.getReturnedResultCount());
+	assertEquals("a1199", r.getResults().get(1199).getArtifactId());
+    }
+
+    @Test
+    public void testFailedPageKeepsResultPartial() {
+	AtomicBoolean failing = new AtomicBoolean(true);
+	ResultImplementation<NBVersionInfo> r = PagedResult.create((int start, int rows) -> {
+	    if (failing.get() && start == 50 + PAGE_SIZE) {
+		return null;
+	    }
+	    return page(1200, start, Math.min(rows, 1200 - start));
+	}, 50);
+
+	r.waitForSkipped();
+	assertTrue(r.isPartial());
+	//the pages before the failed one, nothing after the gap
+	assertEquals(50 + PAGE_SIZE, r.getReturnedResultCount());
+	assertEquals(1200, r.getTotalResultCount());
+
+	failing.set(false);
+	r.waitForSkipped();
+	assertFalse(r.isPartial());
+	assertEquals(1200, r.getReturnedResultCount());
+	for (int i = 0; i < 1200; i++) {
+	    assertEquals("a" + i, r.getResults().get(i).getArtifactId());
+	}
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PersistentResultStoreTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static SearchPage page(String artifactId, int versions) {
+	List<NBVersionInfo> infos = new ArrayList<>(versions);
+	for (int i = 0; i < versions; i++) {
+	    infos.add(new NBVersionInfo("central", "org.example", artifactId, "1." + i, "jar", "jar", null, null, i % 2 == 0 ? null : "tests")); //NOI18N
+	}
+	return new SearchPage(1000, versions, infos);
+    }
+
+    private static void assertSamePage(SearchPage expected, SearchPage actual) {
+	assertEquals(expected.getNumFound(), actual.getNumFound());
+	assertEquals(expected.getDocCount(), actual.getDocCount());
+	assertEquals(expected.getInfos().size(), actual.getInfos().size());
+	for (int i = 0; i < expected.getInfos().size(); i++) {
+	    NBVersionInfo e = expected.getInfos().get(i);
+	    NBVersionInfo a = actual.getInfos().get(i);
+	    assertEquals(Arrays.asList(e.getRepoId(), e.getGroupId(), e.getArtifactId(), e.getVersion(), e.getType(), e.getPackaging(), e.getProjectName(), e.getProjectDescription(), e.getClassifier()),
+		    Arrays.asList(a.getRepoId(), a.getGroupId(), a.getArtifactId(), a.getVersion(), a.getType(), a.getPackaging(), a.getProjectName(), a.getProjectDescription(), a.getClassifier()));
+	}
+    }
+
+    @Test
+    public void testRoundTripAcrossReopen() throws IOException {
+	File f = new File(tmp.getRoot(), "results.dat");
+	PersistentResultStore store = new PersistentResultStore(f, 1024 * 1024);
+	assertNull(store.get("q=a"));
+	SearchPage a = page("a", 3);
+	SearchPage b = page("b", 0);
+	store.put("q=a", a);
+	store.put("q=b", b);
+	assertSamePage(a, store.get("q=a").getPage());
+
+	PersistentResultStore reopened = new PersistentResultStore(f, 1024 * 1024);
+	assertSamePage(a, reopened.get("q=a").getPage());
+	assertSamePage(b, reopened.get("q=b").getPage());
+	assertTrue(reopened.get("q=a").getAge() >= 0);
+	assertNull(reopened.get("q=c"));
+    }
+
+    @Test
+    public void testNewerRecordWins() throws IOException {
+	File f = new File(tmp.getRoot(), "results.dat");
+	PersistentResultStore store = new PersistentResultStore(f, 1024 * 1024);
+	store.put("q", page("old", 2));
+	SearchPage newer = page("new", 4);
+	store.put("q", newer);
+	assertSamePage(newer, store.get("q").getPage());
+	assertSamePage(newer, new PersistentResultStore(f, 1024 * 1024).get("q").getPage());
+    }
+
+    @Test
+    public void testCorruptTailIsDropped() throws IOException {
+	File f = new File(tmp.getRoot(), "results.dat");
+	PersistentResultStore store = new PersistentResultStore(f, 1024 * 1024);
+	SearchPage a = page("a", 3);
+	store.put("q=a", a);
+	long good = f.length();
+	store.put("q=b", page("b", 50));
+	//a write interrupted in the middle of the second record
+	try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) { //NOI18N
+	    raf.setLength(good + 20);
+	}
+
+	PersistentResultStore reopened = new PersistentResultStore(f, 1024 * 1024);
+	assertSamePage(a, reopened.get("q=a").getPage());
+	assertNull(reopened.get("q=b"));
+	assertEquals(good, f.length());
+
+	//appending after the recovery leaves a readable file
+	SearchPage c = page("c", 2);
+	reopened.put("q=c", c);
+	PersistentResultStore again = new PersistentResultStore(f, 1024 * 1024);
+	assertSamePage(a, again.get("q=a").getPage());
+	assertSamePage(c, again.get("q=c").getPage());
+    }
+
+    @Test
+    public void testForeignFileIsReset() throws IOException {
+	File f = new File(tmp.getRoot(), "results.dat");
+	try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) { //NOI18N
+	    raf.writeUTF("not a store at all");
+	}
+	PersistentResultStore store = new PersistentResultStore(f, 1024 * 1024);
+	assertNull(store.get("q"));
+	SearchPage a = page("a", 1);
+	store.put("q", a);
+	assertSamePage(a, new PersistentResultStore(f, 1024 * 1024).get("q").getPage());
+    }
+
+    @Test
+    public void testCompaction() throws IOException {
+	File f = new File(tmp.getRoot(), "results.dat");
+	long maxSize = 16 * 1024;
+	PersistentResultStore store = new PersistentResultStore(f, maxSize);
+	SearchPage last = null;
+	for (int i = 0; i < 200; i++) {
+	    last = page("a" + i, 5);
+	    store.put("q=" + i, last);
+	    //superseded records must not survive compaction either
+	    store.put("q=same", page("same" + i, 1));
+	    assertTrue("compacted below the limit", f.length() <= maxSize);
+	}
+	assertSamePage(last, store.get("q=199").getPage());
+	assertNull("the oldest entries were evicted", store.get("q=0"));
+	assertNotNull(store.get("q=same"));
+	assertEquals("same199", store.get("q=same").getPage().getInfos().get(0).getArtifactId());
+
+	PersistentResultStore reopened = new PersistentResultStore(f, maxSize);
+	assertSamePage(last, reopened.get("q=199").getPage());
+	assertEquals("same199", reopened.get("q=same").getPage().getInfos().get(0).getArtifactId());
+	assertNull(reopened.get("q=0"));
+	assertFalse(new File(tmp.getRoot(), "results.dat.tmp").exists());
+    }
+}
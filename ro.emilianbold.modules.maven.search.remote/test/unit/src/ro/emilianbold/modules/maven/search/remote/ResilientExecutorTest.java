@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.io.IOException;
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ResilientExecutorTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private SolrStandIn standIn;
+
+    @Before
+    public void setUp() throws Exception {
+	standIn = new SolrStandIn();
+    }
+
+    @After
+    public void tearDown() {
+	standIn.close();
+    }
+
+    @Test
+    public void testCacheHitsAreNoLatencies() throws IOException {
+	standIn.setLatency(100, 0);
+	standIn.setMaxAge(300);
+	OkHttpClient client = new OkHttpClient.Builder().cache(new Cache(tmp.newFolder(), 1024 * 1024)).build();
+	EndpointHealth health = new EndpointHealth();
+	ResilientExecutor executor = new ResilientExecutor(client, health, new SearchMetrics());
+	Request request = new Request.Builder().url(standIn.getURL() + "?q=g:%22org.example%22&rows=20").build(); //NOI18N
+
+	try (Response response = executor.execute(request, null)) {
+	    assertNotNull(response.networkResponse());
+	    response.body().string();
+	}
+	double average = health.getAverageLatency();
+	assertTrue(average >= 100);
+
+	//enough hits for percentiles, had they been recorded
+	for (int i = 0; i < 30; i++) {
+	    try (Response response = executor.execute(request, null)) {
+		assertNull(response.networkResponse());
+		response.body().string();
+	    }
+	}
+	assertEquals(1, standIn.getRequestCount());
+	assertEquals(average, health.getAverageLatency(), 0);
+	assertEquals(-1, health.percentile(0.95));
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SearchEndpointsTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private SolrStandIn slow;
+    private SolrStandIn fast;
+
+    @Before
+    public void setUp() throws Exception {
+	slow = new SolrStandIn();
+	fast = new SolrStandIn();
+    }
+
+    @After
+    public void tearDown() {
+	slow.close();
+	fast.close();
+    }
+
+    private static void search(SearchEndpoints.Endpoint endpoint) throws IOException {
+	Request request = new Request.Builder().url(endpoint.url("q=g:%22org.example%22&rows=20")).build(); //NOI18N
+	try (Response response = endpoint.getExecutor().execute(request, null)) {
+	    response.body().string();
+	}
+    }
+
+    @Test
+    public void testNoEndpoints() {
+	SearchMetrics metrics = new SearchMetrics();
+	SearchEndpoints endpoints = new SearchEndpoints(Collections.<String>emptyList(), new OkHttpClient(), metrics);
+	assertTrue(endpoints.candidates().isEmpty());
+	assertTrue(endpoints.isDown());
+	MavenCentralGenericFindQuery query = new MavenCentralGenericFindQuery("central", endpoints, null, null, metrics); //NOI18N
+	assertEquals(-1, query.queryCentralRepository("q=g:x", (SolrResponseParser.SolrDoc doc) -> { //NOI18N
+	}));
+    }
+
+    @Test
+    public void testFastestFromNetworkLatencies() throws IOException {
+	//the slow endpoint serves most of its pages from the cache
+	slow.setLatency(200, 0);
+	slow.setMaxAge(300);
+	fast.setLatency(50, 0);
+	OkHttpClient client = new OkHttpClient.Builder().cache(new Cache(tmp.newFolder(), 1024 * 1024)).build();
+	SearchEndpoints endpoints = new SearchEndpoints(Arrays.asList(slow.getURL(), fast.getURL()), client, new SearchMetrics());
+	//each endpoint gets its first probe
+	assertEquals(slow.getURL(), endpoints.candidates().get(0).getURL());
+	assertEquals(fast.getURL(), endpoints.candidates().get(0).getURL());
+
+	SearchEndpoints.Endpoint slowEndpoint = endpoints.getEndpoints().get(0);
+	for (int i = 0; i < 20; i++) {
+	    search(slowEndpoint);
+	}
+	assertEquals(1, slow.getRequestCount());
+	search(endpoints.getEndpoints().get(1));
+
+	List<SearchEndpoints.Endpoint> candidates = endpoints.candidates();
+	assertEquals(fast.getURL(), candidates.get(0).getURL());
+	assertEquals(slow.getURL(), candidates.get(1).getURL());
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.util.Random;
+
+/**
+ * Search responses shaped like the ones of search.maven.org, for tests,
+ * benchmarks and load runs that must not depend on the network. The
+ * documents come from a fixed seed: the same arguments always give the same
+ * response.
+ */
+/* package protected */ final class SolrFixtures {
+
+    //the sizes the benchmarks run with: a page, a large page, everything of a popular group
+    static final int[] SIZES = {10, 500, 5000};
+
+    private static final String[] GROUPS = {
+	"org.apache.commons", "com.google.guava", "org.springframework", "io.netty", //NOI18N
+	"com.fasterxml.jackson.core", "org.slf4j", "junit", "org.hibernate", //NOI18N
+	"org.eclipse.jetty", "org.apache.maven.plugins"}; //NOI18N
+    private static final String[] ARTIFACTS = {
+	"core", "api", "impl", "utils", "parent", "client", "server", //NOI18N
+	"annotations", "maven-plugin", "test"}; //NOI18N
+    private static final String[] QUALIFIERS = {"-RC1", "-beta-2", ".Final", "-alpha", "-M3"}; //NOI18N
+
+    private SolrFixtures() {
+    }
+
+    /**
+     * A response of the gav core with {@code docs} documents, the latest
+     * release first.
+     */
+    static String gav(int docs) {
+	return gav(null, null, docs, docs);
+    }
+
+    /**
+     * A response of the gav core with {@code docs} documents of the
+     * {@code numFound} matching, the latest release first.
+     *
+     * @param groupId the groupId of all documents, null for a mix of groups
+     * @param artifactId the artifactId of all documents, null for a mix
+     */
+    static String gav(String groupId, String artifactId, int docs, long numFound) {
+	return gav(groupId, artifactId, 0, docs, numFound);
+    }
+
+    /**
+     * A page of a response of the gav core: the documents
+     * {@code [start, start + docs)} of the same sequence the other pages are
+     * cut from.
+     *
+     * @see #gav(String, String, int, long)
+     */
+    static String gav(String groupId, String artifactId, int start, int docs, long numFound) {
+	Random random = new Random(31L * (groupId != null ? groupId.hashCode() : 0) + (artifactId != null ? artifactId.hashCode() : 0));
+	StringBuilder sb = new StringBuilder(200 + docs * 220);
+	sb.append("{\"responseHeader\":{\"status\":0,\"QTime\":").append(1 + random.nextInt(20)) //NOI18N
+		.append(",\"params\":{\"q\":\"*:*\",\"core\":\"gav\",\"wt\":\"json\",\"rows\":\"").append(docs).append("\"}},") //NOI18N
+		.append("\"response\":{\"numFound\":").append(numFound).append(",\"start\":").append(start).append(",\"docs\":["); //NOI18N
+	long timestamp = 1500000000000L;
+	for (int i = 0; i < start + docs; i++) {
+	    String g = groupId != null ? groupId : GROUPS[random.nextInt(GROUPS.length)];
+	    String a = artifactId != null ? artifactId : g.substring(g.lastIndexOf('.') + 1) + '-' + ARTIFACTS[random.nextInt(ARTIFACTS.length)];
+	    String v = random.nextInt(10) + "." + random.nextInt(20) + "." + random.nextInt(30) //NOI18N
+		    + (random.nextInt(8) == 0 ? QUALIFIERS[random.nextInt(QUALIFIERS.length)] : ""); //NOI18N
+	    String p = a.endsWith("-plugin") ? "maven-plugin" : a.endsWith("-parent") ? "pom" : "jar"; //NOI18N
+	    timestamp -= random.nextInt(30 * 24 * 3600) * 1000L;
+	    boolean tests = !p.equals("pom") && random.nextInt(4) == 0; //NOI18N
+	    if (i < start) {
+		continue;
+	    }
+
+	    if (i > start) {
+		sb.append(',');
+	    }
+	    sb.append("{\"id\":\""); //NOI18N
+	    escape(sb, g).append(':');
+	    escape(sb, a).append(':').append(v).append("\",\"g\":\""); //NOI18N
+	    escape(sb, g).append("\",\"a\":\""); //NOI18N
+	    escape(sb, a).append("\",\"v\":\"").append(v) //NOI18N
+		    .append("\",\"p\":\"").append(p) //NOI18N
+		    .append("\",\"timestamp\":").append(timestamp) //NOI18N
+		    .append(",\"ec\":["); //NOI18N
+	    if (p.equals("pom")) { //NOI18N
+		sb.append("\".pom\""); //NOI18N
+	    } else {
+		sb.append("\"-sources.jar\",\"-javadoc.jar\",\".jar\",\".pom\""); //NOI18N
+		if (tests) {
+		    sb.append(",\"-tests.jar\""); //NOI18N
+		}
+	    }
+	    sb.append("],\"tags\":["); //NOI18N
+	    String[] tags = a.split("-"); //NOI18N
+	    for (int t = 0; t < tags.length; t++) {
+		sb.append(t > 0 ? ",\"" : "\""); //NOI18N
+		escape(sb, tags[t]).append('"');
+	    }
+	    sb.append("]}"); //NOI18N
+	}
+	return sb.append("]}}").toString(); //NOI18N
+    }
+
+    private static StringBuilder escape(StringBuilder sb, String s) {
+	for (int i = 0; i < s.length(); i++) {
+	    char c = s.charAt(i);
+	    if (c == '"' || c == '\\') {
+		sb.append('\\');
+	    }
+	    sb.append(c);
+	}
+	return sb;
+    }
+}
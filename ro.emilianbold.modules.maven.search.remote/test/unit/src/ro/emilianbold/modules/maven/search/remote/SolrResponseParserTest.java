@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import ro.emilianbold.modules.maven.search.remote.SolrResponseParser.SolrDoc;
+
+public class SolrResponseParserTest {
+
+    /**
+     * The documents as {@code field=value} strings, copied while they are
+     * valid.
+     */
+    private static final class Collector implements SolrResponseParser.DocHandler {
+
+	private final List<String> docs = new ArrayList<>();
+
+	@Override
+	public void doc(SolrDoc doc) {
+	    docs.add("g=" + doc.get("g") + " a=" + doc.get("a") + " ec=" + doc.getList("ec")); //NOI18N
+	}
+    }
+
+    private static SolrResponseParser parse(String json, Collector collector) throws ParseException {
+	SolrResponseParser parser = new SolrResponseParser(collector);
+	try {
+	    new JSONParser().parse(new StringReader(json), parser);
+	} catch (IOException ex) {
+	    throw new AssertionError(ex);
+	}
+	return parser;
+    }
+
+    @Test
+    public void testDocsAndNumFound() throws ParseException {
+	Collector c = new Collector();
+	SolrResponseParser parser = parse("{\"responseHeader\":{\"status\":0,\"params\":{\"q\":\"g:junit\",\"rows\":\"2\"}},"
+		+ "\"response\":{\"numFound\":1234,\"start\":0,\"docs\":["
+		+ "{\"id\":\"junit:junit\",\"g\":\"junit\",\"a\":\"junit\",\"latestVersion\":\"4.12\",\"ec\":[\"-sources.jar\",\".jar\",\".pom\"]},"
+		+ "{\"id\":\"junit:junit-dep\",\"g\":\"junit\",\"a\":\"junit-dep\",\"versionCount\":7}"
+		+ "]}}", c);
+
+	assertEquals(1234, parser.getNumFound());
+	assertEquals(Arrays.asList(
+		"g=junit a=junit ec=[-sources.jar, .jar, .pom]",
+		//the array of the first document must not leak into the second
+		"g=junit a=junit-dep ec=null"), c.docs);
+    }
+
+    @Test
+    public void testNonStringValuesAreStrings() throws ParseException {
+	final List<String> values = new ArrayList<>();
+	SolrResponseParser parser = new SolrResponseParser((SolrDoc doc) -> {
+	    values.add(doc.get("timestamp"));
+	    values.add(doc.get("flag"));
+	    values.add(doc.get("missing"));
+	});
+	new JSONParser().parse("{\"response\":{\"numFound\":1,\"docs\":[{\"timestamp\":1234567890123,\"flag\":true,\"nothing\":null}]}}", parser);
+	assertEquals(Arrays.asList("1234567890123", "true", null), values);
+    }
+
+    @Test
+    public void testNumFoundAfterDocs() throws ParseException {
+	Collector c = new Collector();
+	SolrResponseParser parser = parse("{\"response\":{\"docs\":[{\"g\":\"x\",\"a\":\"y\"}],\"numFound\":1}}", c);
+	assertEquals(1, parser.getNumFound());
+	assertEquals(1, c.docs.size());
+    }
+
+    @Test
+    public void testNestedArraysAndObjectsInDocs() throws ParseException {
+	Collector c = new Collector();
+	parse("{\"response\":{\"numFound\":2,\"docs\":["
+		+ "{\"g\":\"x\",\"nested\":[[\"1\",\"2\"],[\"3\"]],\"ec\":[\".jar\",[\".ignored\"],{\"k\":\"v\"}],\"obj\":{\"g\":\"inner\",\"l\":[\"a\"]},\"a\":\"y\"},"
+		+ "{\"g\":\"z\",\"a\":\"w\",\"ec\":[]}"
+		+ "]}}", c);
+	assertEquals(Arrays.asList(
+		"g=x a=y ec=[.jar]",
+		"g=z a=w ec=[]"), c.docs);
+    }
+
+    @Test
+    public void testDocsOutsideResponseAreIgnored() throws ParseException {
+	Collector c = new Collector();
+	SolrResponseParser parser = parse("{\"responseHeader\":{\"params\":{\"docs\":[{\"g\":\"header\"}]}},"
+		+ "\"docs\":[{\"g\":\"top\"}],"
+		+ "\"response\":{\"numFound\":0,\"docs\":[]}}", c);
+	assertEquals(0, parser.getNumFound());
+	assertEquals(0, c.docs.size());
+    }
+
+    @Test
+    public void testUnexpectedShapes() throws ParseException {
+	//a Solr error
+	Collector c = new Collector();
+	SolrResponseParser parser = parse("{\"responseHeader\":{\"status\":400},\"error\":{\"msg\":\"undefined field x\",\"code\":400}}", c);
+	assertEquals(-1, parser.getNumFound());
+	assertEquals(0, c.docs.size());
+
+	//numFound which is not a number, docs which is not an array
+	parser = parse("{\"response\":{\"numFound\":\"12\",\"docs\":{\"g\":\"x\"}}}", c);
+	assertEquals(-1, parser.getNumFound());
+	assertEquals(0, c.docs.size());
+
+	//not even an object
+	parser = parse("[1,2,{\"response\":{\"numFound\":3}}]", c);
+	assertEquals(-1, parser.getNumFound());
+	assertEquals(0, c.docs.size());
+    }
+
+    @Test
+    public void testTruncatedResponse() {
+	Collector c = new Collector();
+	try {
+	    parse("{\"response\":{\"numFound\":3,\"docs\":[{\"g\":\"x\",\"a\":\"1\"},{\"g\":\"x\",\"a\":\"2\"},{\"g\":\"x\",\"a", c);
+	    fail("truncated JSON must not parse"); //NOI18N
+	} catch (ParseException ex) {
+	    //expected
+	}
+	//the complete documents were delivered, the caller discards them
+	assertEquals(Arrays.asList("g=x a=1 ec=null", "g=x a=2 ec=null"), c.docs);
+    }
+
+    @Test
+    public void testParserIsReusable() throws ParseException {
+	Collector c = new Collector();
+	SolrResponseParser parser = new SolrResponseParser(c);
+	JSONParser json = new JSONParser();
+	json.parse("{\"response\":{\"numFound\":5,\"docs\":[{\"g\":\"x\",\"ec\":[\".jar\"]}]}}", parser);
+	json.parse("{\"response\":{\"docs\":[{\"g\":\"y\"}]}}", parser);
+	assertEquals(-1, parser.getNumFound());
+	assertEquals("g=y a=null ec=null", c.docs.get(1));
+    }
+
+    @Test
+    public void testFixtures() throws ParseException {
+	for (int size : SolrFixtures.SIZES) {
+	    Collector c = new Collector();
+	    SolrResponseParser parser = parse(SolrFixtures.gav(size), c);
+	    assertEquals(size, parser.getNumFound());
+	    assertEquals(size, c.docs.size());
+	    //same arguments, same response
+	    assertEquals(SolrFixtures.gav(size), SolrFixtures.gav(size));
+	}
+	Collector c = new Collector();
+	parse(SolrFixtures.gav("org.example", "a\"b", 2, 100), c); //NOI18N
+	assertEquals("g=org.example a=a\"b ec=[-sources.jar, -javadoc.jar, .jar, .pom]", c.docs.get(0).replace(", -tests.jar", "")); //NOI18N
+    }
+}
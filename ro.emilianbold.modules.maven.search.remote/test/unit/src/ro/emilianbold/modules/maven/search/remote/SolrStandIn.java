@@ -0,0 +1,219 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A local stand-in for the search of search.maven.org, to run the module
+ * against without the network. Every query gets a {@link SolrFixtures}
+ * response for the groupId and artifactId it asks for, paged by its
+ * {@code start} and {@code rows}. The latency, the share of failed requests,
+ * the number of matching documents and their caching are configurable while
+ * it runs.
+ *
+ * Point the module to it with {@code -Dmaven.search.remote.url=} and
+ * {@link #getURL()}.
+ */
+/* package protected */ final class SolrStandIn implements Closeable {
+
+    private static final Pattern GROUP_ID = Pattern.compile("\\bg:\"([^\"]*)\""); //NOI18N
+    private static final Pattern ARTIFACT_ID = Pattern.compile("\\ba:\"([^\"]*)\""); //NOI18N
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private volatile long latency;
+    private volatile long jitter;
+    private volatile double errorRate;
+    private volatile int numFound = 50;
+    private volatile int maxAge;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    SolrStandIn() throws IOException {
+	server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+	server.createContext("/solrsearch/select", this::handle); //NOI18N
+	executor = Executors.newCachedThreadPool((Runnable r) -> {
+	    Thread t = new Thread(r, SolrStandIn.class.getSimpleName());
+	    t.setDaemon(true);
+	    return t;
+	});
+	server.setExecutor(executor);
+	server.start();
+    }
+
+    String getURL() {
+	return "http://" + server.getAddress().getHostString() + ':' + server.getAddress().getPort() + "/solrsearch/select"; //NOI18N
+    }
+
+    /**
+     * @param millis the time each request waits before it is answered
+     * @param jitter at most this many milliseconds are added at random
+     */
+    void setLatency(long millis, long jitter) {
+	this.latency = millis;
+	this.jitter = jitter;
+    }
+
+    /**
+     * @param rate the share of the requests answered with 503, 0 to 1
+     */
+    void setErrorRate(double rate) {
+	this.errorRate = rate;
+    }
+
+    /**
+     * @param numFound the documents matching every query, the pages are cut
+     * from them
+     */
+    void setNumFound(int numFound) {
+	this.numFound = numFound;
+    }
+
+    /**
+     * @param seconds the {@code max-age} of the answers, 0 for none
+     */
+    void setMaxAge(int seconds) {
+	this.maxAge = seconds;
+    }
+
+    long getRequestCount() {
+	return requests.sum();
+    }
+
+    long getFailureCount() {
+	return failures.sum();
+    }
+
+    /**
+     * @return the bytes of the response bodies as sent, ie. compressed
+     */
+    long getBytesServed() {
+	return bytes.sum();
+    }
+
+    @Override
+    public void close() {
+	server.stop(0);
+	executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+	try {
+	    requests.increment();
+	    ThreadLocalRandom random = ThreadLocalRandom.current();
+	    long wait = latency + (jitter > 0 ? random.nextLong(jitter + 1) : 0);
+	    if (wait > 0) {
+		try {
+		    Thread.sleep(wait);
+		} catch (InterruptedException ex) {
+		    Thread.currentThread().interrupt();
+		    return;
+		}
+	    }
+	    if (random.nextDouble() < errorRate) {
+		failures.increment();
+		exchange.sendResponseHeaders(503, -1);
+		return;
+	    }
+	    if ("HEAD".equals(exchange.getRequestMethod())) { //NOI18N
+		//preconnect
+		exchange.sendResponseHeaders(200, -1);
+		return;
+	    }
+
+	    Map<String, String> params = params(exchange.getRequestURI().getRawQuery());
+	    String q = params.getOrDefault("q", ""); //NOI18N
+	    int start = Math.max(0, Integer.parseInt(params.getOrDefault("start", "0"))); //NOI18N
+	    int rows = Integer.parseInt(params.getOrDefault("rows", "20")); //NOI18N
+	    int total = numFound;
+	    String json = SolrFixtures.gav(find(GROUP_ID, q), find(ARTIFACT_ID, q), start, Math.max(0, Math.min(rows, total - start)), total);
+
+	    byte[] body = json.getBytes(StandardCharsets.UTF_8);
+	    String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding"); //NOI18N
+	    if (acceptEncoding != null && acceptEncoding.contains("gzip")) { //NOI18N
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+		    gzip.write(body);
+		}
+		body = compressed.toByteArray();
+		exchange.getResponseHeaders().set("Content-Encoding", "gzip"); //NOI18N
+	    }
+	    exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8"); //NOI18N
+	    if (maxAge > 0) {
+		exchange.getResponseHeaders().set("Cache-Control", "max-age=" + maxAge); //NOI18N
+	    }
+	    exchange.sendResponseHeaders(200, body.length);
+	    try (OutputStream out = exchange.getResponseBody()) {
+		out.write(body);
+	    }
+	    bytes.add(body.length);
+	} finally {
+	    exchange.close();
+	}
+    }
+
+    private static Map<String, String> params(String rawQuery) throws UnsupportedEncodingException {
+	Map<String, String> params = new HashMap<>();
+	if (rawQuery != null) {
+	    for (String param : rawQuery.split("&")) { //NOI18N
+		int eq = param.indexOf('=');
+		if (eq > 0) {
+		    params.put(param.substring(0, eq), URLDecoder.decode(param.substring(eq + 1), "UTF-8")); //NOI18N
+		}
+	    }
+	}
+	return params;
+    }
+
+    private static String find(Pattern field, String q) {
+	Matcher m = field.matcher(q);
+	return m.find() ? m.group(1) : null;
+    }
+}
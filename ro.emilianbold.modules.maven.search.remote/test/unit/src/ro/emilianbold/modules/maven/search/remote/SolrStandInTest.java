@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import okhttp3.OkHttpClient;
+import org.json.simple.parser.JSONParser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+import org.netbeans.modules.maven.indexer.api.QueryField;
+import org.netbeans.modules.maven.indexer.spi.ResultImplementation;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SolrStandInTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private SolrStandIn standIn;
+    private SearchMetrics metrics;
+    private MavenCentralGenericFindQuery query;
+
+    @Before
+    public void setUp() throws Exception {
+	standIn = new SolrStandIn();
+	metrics = new SearchMetrics();
+	OkHttpClient client = new OkHttpClient.Builder().eventListenerFactory(SearchMetrics.FACTORY).build();
+	SearchEndpoints endpoints = new SearchEndpoints(Collections.singletonList(standIn.getURL()), client, metrics);
+	query = new MavenCentralGenericFindQuery("central", endpoints, new PersistentResultStore(tmp.newFile(), 1024 * 1024), null, metrics); //NOI18N
+    }
+
+    @After
+    public void tearDown() {
+	standIn.close();
+    }
+
+    @Test
+    public void testPagedSearch() throws Exception {
+	standIn.setNumFound(120);
+	QueryField g = new QueryField();
+	g.setField(QueryField.FIELD_GROUPID);
+	g.setValue("org.example"); //NOI18N
+	QueryField a = new QueryField();
+	a.setField(QueryField.FIELD_ARTIFACTID);
+	a.setValue("example-core"); //NOI18N
+	ResultImplementation<NBVersionInfo> found = query.find(Arrays.asList(g, a), null);
+	found.waitForSkipped();
+	List<NBVersionInfo> infos = found.getResults();
+	//a record per extension of a document, always one pom
+	int poms = 0;
+	for (NBVersionInfo info : infos) {
+	    assertEquals("org.example", info.getGroupId()); //NOI18N
+	    assertEquals("example-core", info.getArtifactId()); //NOI18N
+	    if ("pom".equals(info.getType())) { //NOI18N
+		poms++;
+	    }
+	}
+	assertEquals(120, poms);
+	//no page twice or missing: the records of one response with all documents
+	assertEquals(records(SolrFixtures.gav("org.example", "example-core", 0, 120, 120)), records(infos)); //NOI18N
+	//every document once, over more than one page
+	assertEquals(120, metrics.getDocCount());
+	assertTrue(standIn.getRequestCount() > 1);
+	assertEquals(standIn.getBytesServed(), metrics.getBytesRead());
+	//compressed
+	assertEquals(0, metrics.getUncompressedResponseCount());
+    }
+
+    private static List<String> records(String json) throws Exception {
+	List<NBVersionInfo> infos = new ArrayList<>();
+	VersionInfoDecoder decoder = new VersionInfoDecoder("central"); //NOI18N
+	new JSONParser().parse(new StringReader(json), new SolrResponseParser((SolrResponseParser.SolrDoc doc) -> decoder.decode(doc, infos)));
+	return records(infos);
+    }
+
+    private static List<String> records(List<NBVersionInfo> infos) {
+	List<String> records = new ArrayList<>(infos.size());
+	for (NBVersionInfo info : infos) {
+	    records.add(info.getVersion() + ':' + info.getType() + ':' + info.getClassifier());
+	}
+	return records;
+    }
+
+    @Test
+    public void testErrors() {
+	standIn.setErrorRate(1);
+	assertEquals(-1, query.queryCentralRepository("q=g:x", (SolrResponseParser.SolrDoc doc) -> { //NOI18N
+	}));
+	assertTrue(standIn.getFailureCount() > 0);
+	assertEquals(standIn.getRequestCount(), standIn.getFailureCount());
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class TopVersionsTest {
+
+    private static NBVersionInfo info(String version, String classifier) {
+	return new NBVersionInfo("central", "org.example", "lib", version, "jar", "jar", null, null, classifier); //NOI18N
+    }
+
+    private static List<String> versions(List<NBVersionInfo> infos) {
+	List<String> versions = new ArrayList<>();
+	for (NBVersionInfo info : infos) {
+	    versions.add(info.getVersion() + (info.getClassifier() != null ? "-" + info.getClassifier() : "")); //NOI18N
+	}
+	return versions;
+    }
+
+    @Test
+    public void testNewestInMavenOrder() {
+	List<String> all = Arrays.asList("1.0", "1.9", "1.10", "2.0-alpha-1", "2.0-beta-1", "2.0-RC1", "2.0", "2.0.1", "1.10.1"); //NOI18N
+	List<String> shuffled = new ArrayList<>(all);
+	Collections.shuffle(shuffled, new Random(7));
+	TopVersions top = new TopVersions(3);
+	for (String version : shuffled) {
+	    top.add(info(version, null));
+	}
+	assertEquals(Arrays.asList("2.0.1", "2.0", "2.0-RC1"), versions(top.toList())); //NOI18N
+
+	assertTrue(top.accepts("2.0")); //NOI18N
+	assertTrue(top.accepts("3.0")); //NOI18N
+	assertFalse(top.accepts("1.10.1")); //NOI18N
+    }
+
+    @Test
+    public void testRecordsOfOneVersion() {
+	TopVersions top = new TopVersions(1);
+	top.addAll(Arrays.asList(info("1.0", null), info("2.0", null), info("2.0", "tests"), info("2.0", null), info("1.5", "tests"))); //NOI18N
+	//duplicates, eg. from another repository, are dropped
+	assertEquals(Arrays.asList("2.0", "2.0-tests"), versions(top.toList())); //NOI18N
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2016, Emilian Marius Bold
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package ro.emilianbold.modules.maven.search.remote;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.netbeans.modules.maven.indexer.api.NBVersionInfo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+public class VersionInfoDecoderTest {
+
+    private static List<NBVersionInfo> decode(String docs) throws ParseException {
+	List<NBVersionInfo> infos = new ArrayList<>();
+	VersionInfoDecoder decoder = new VersionInfoDecoder("central"); //NOI18N
+	SolrResponseParser parser = new SolrResponseParser((SolrResponseParser.SolrDoc doc) -> decoder.decode(doc, infos));
+	try {
+	    new JSONParser().parse(new StringReader("{\"response\":{\"numFound\":1,\"start\":0,\"docs\":[" + docs + "]}}"), parser); //NOI18N
+	} catch (IOException ex) {
+	    throw new AssertionError(ex);
+	}
+	return infos;
+    }
+
+    private static String toString(NBVersionInfo info) {
+	return info.getRepoId() + " " + info.getGroupId() + ":" + info.getArtifactId() + ":" + info.getVersion() //NOI18N
+		+ " type=" + info.getType() + " packaging=" + info.getPackaging() //NOI18N
+		+ " classifier=" + info.getClassifier() + " name=" + info.getProjectName(); //NOI18N
+    }
+
+    @Test
+    public void testExtensionsAndClassifiers() throws ParseException {
+	List<NBVersionInfo> infos = decode("{\"id\":\"junit:junit:4.12\",\"g\":\"junit\",\"a\":\"junit\",\"v\":\"4.12\",\"p\":\"jar\"," //NOI18N
+		+ "\"ec\":[\"-sources.jar\",\"-javadoc.jar\",\".jar\",\"-tests.jar\",\".pom\"]}"); //NOI18N
+	assertEquals(3, infos.size());
+	//javadoc and sources are not separate results
+	assertEquals("central junit:junit:4.12 type=jar packaging=jar classifier=null name=junit:junit:4.12", toString(infos.get(0))); //NOI18N
+	assertEquals("central junit:junit:4.12 type=jar packaging=jar classifier=tests name=junit:junit:4.12", toString(infos.get(1))); //NOI18N
+	assertEquals("central junit:junit:4.12 type=pom packaging=jar classifier=null name=junit:junit:4.12", toString(infos.get(2))); //NOI18N
+    }
+
+    @Test
+    public void testLatestVersion() throws ParseException {
+	List<NBVersionInfo> infos = decode("{\"id\":\"junit:junit\",\"g\":\"junit\",\"a\":\"junit\",\"latestVersion\":\"4.12\",\"p\":\"jar\"}"); //NOI18N
+	assertEquals(1, infos.size());
+	//no "ec", the type is guessed
+	assertEquals("central junit:junit:4.12 type=jar packaging=jar classifier=null name=junit:junit", toString(infos.get(0))); //NOI18N
+    }
+
+    @Test
+    public void testMissingFieldsAreNull() throws ParseException {
+	//fl=g,a
+	List<NBVersionInfo> infos = decode("{\"g\":\"junit\",\"a\":\"junit\"},{\"g\":\"junit\",\"a\":\"junit-dep\"}"); //NOI18N
+	assertEquals(2, infos.size());
+	NBVersionInfo info = infos.get(0);
+	assertEquals("junit", info.getGroupId()); //NOI18N
+	assertEquals("junit", info.getArtifactId()); //NOI18N
+	assertNull(info.getVersion());
+	assertNull(info.getPackaging());
+	assertNull(info.getProjectName());
+	//canonicalized
+	assertSame(info.getGroupId(), infos.get(1).getGroupId());
+    }
+
+    @Test
+    public void testDocsWithoutCoordinatesAreSkipped() throws ParseException {
+	List<NBVersionInfo> infos = decode("{\"g\":\"junit\"},{\"a\":\"junit\"},{\"id\":\"x\"},{\"g\":\"junit\",\"a\":\"junit\"}"); //NOI18N
+	assertEquals(1, infos.size());
+	assertEquals("junit", infos.get(0).getArtifactId()); //NOI18N
+    }
+}